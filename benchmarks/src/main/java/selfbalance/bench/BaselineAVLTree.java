@@ -0,0 +1,154 @@
+package selfbalance.bench;
+
+// AVLTree's write path as it was before single-pass writes and subtree
+// counts: insert and delete search for the key first and then descend a
+// second time, comparing twice per level, and nodes carry no count. Kept only
+// as the baseline WritePathBenchmark measures the current tree against.
+final class BaselineAVLTree<T extends Comparable<T>> {
+    private final class Node {
+        T value;
+        Node left;
+        Node right;
+        int height;
+
+        Node(T value) {
+            this.value = value;
+            this.height = 1;
+        }
+    }
+
+    private Node root = null;
+    private int size = 0;
+
+    boolean insert(T value) {
+        if (search(value)) return false;
+        root = insert(root, value);
+        size++;
+        return true;
+    }
+
+    private Node insert(Node current, T value) {
+        if (current == null) {
+            return new Node(value);
+        }
+        if (value.compareTo(current.value) < 0) {
+            current.left = insert(current.left, value);
+        } else if (value.compareTo(current.value) > 0) {
+            current.right = insert(current.right, value);
+        }
+        return balanceTree(current);
+    }
+
+    boolean search(T value) {
+        return search(root, value) != null;
+    }
+
+    private Node search(Node current, T value) {
+        if (current == null || value.equals(current.value)) {
+            return current;
+        }
+        if (value.compareTo(current.value) < 0) {
+            return search(current.left, value);
+        } else {
+            return search(current.right, value);
+        }
+    }
+
+    boolean delete(T value) {
+        if (!search(value)) return false;
+        root = delete(root, value);
+        size--;
+        return true;
+    }
+
+    private Node delete(Node root, T key) {
+        if (root == null) {
+            return null;
+        }
+        if (key.compareTo(root.value) < 0) {
+            root.left = delete(root.left, key);
+        } else if (key.compareTo(root.value) > 0) {
+            root.right = delete(root.right, key);
+        } else {
+            if (root.left == null) {
+                return root.right;
+            } else if (root.right == null) {
+                return root.left;
+            }
+            Node temp = root.left;
+            while (temp.right != null) {
+                temp = temp.right;
+            }
+            root.value = temp.value;
+            root.left = delete(root.left, temp.value);
+        }
+        return balanceTree(root);
+    }
+
+    // Balanced build from ascending keys, so setup does not pay for size
+    // single inserts; the shape matches what bulkLoad gives the current tree
+    void build(T[] sorted) {
+        root = build(sorted, 0, sorted.length - 1);
+        size = sorted.length;
+    }
+
+    private Node build(T[] sorted, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(sorted[mid]);
+        node.left = build(sorted, lo, mid - 1);
+        node.right = build(sorted, mid + 1, hi);
+        updateHeight(node);
+        return node;
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private int balance(Node node) {
+        return node == null ? 0 : height(node.right) - height(node.left);
+    }
+
+    private void updateHeight(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    private Node rightRotate(Node y) {
+        Node x = y.left;
+        y.left = x.right;
+        x.right = y;
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    private Node leftRotate(Node x) {
+        Node y = x.right;
+        x.right = y.left;
+        y.left = x;
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    private Node balanceTree(Node root) {
+        updateHeight(root);
+        int balance = balance(root);
+        if (balance > 1) {
+            if (balance(root.right) < 0) {
+                root.right = rightRotate(root.right);
+            }
+            return leftRotate(root);
+        }
+        if (balance < -1) {
+            if (balance(root.left) > 0) {
+                root.left = leftRotate(root.left);
+            }
+            return rightRotate(root);
+        }
+        return root;
+    }
+}
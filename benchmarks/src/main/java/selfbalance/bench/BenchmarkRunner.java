@@ -0,0 +1,71 @@
+package selfbalance.bench;
+
+import java.util.regex.Pattern;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar. Runs every suite with the GC profiler, which
+// reports collection counts and time along with the allocation rate, both per
+// second and normalised per operation (gc.alloc.rate.norm). The concurrent
+// suite runs once per thread count. Results go to jmh-<suite>.json.
+//
+// Arguments are ordinary JMH options and narrow the run, for example
+//   java -jar benchmarks/target/benchmarks.jar TreeOperations -p size=1000000 -p keyType=STRING
+// Passing -t runs the concurrent suite at that one thread count only.
+public final class BenchmarkRunner {
+    private static final int[] THREADS = {1, 4, 16, 32};
+    private static final String CONCURRENT = ConcurrentTreeBenchmark.class.getName();
+    private static final String SINGLE_THREADED = String.join("|", TreeOperationsBenchmark.class.getName(),
+            TreeBuildBenchmark.class.getName(), WritePathBenchmark.class.getName());
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions command = new CommandLineOptions(args);
+        if (command.shouldHelp() || command.shouldList() || command.shouldListWithParams()
+                || command.shouldListProfilers() || command.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        try {
+            new Runner(options(command, "single-threaded")
+                    .exclude(CONCURRENT)
+                    .threads(1)
+                    .build()).run();
+        } catch (NoBenchmarksException e) {
+            System.out.println("No single-threaded benchmarks match");
+        }
+
+        // JMH adds these includes to the ones given on the command line, so the
+        // concurrent runs exclude the other suites rather than include only theirs
+        boolean concurrent = command.getIncludes().isEmpty();
+        for (String include : command.getIncludes()) {
+            concurrent |= Pattern.compile(include).matcher(CONCURRENT).find();
+        }
+        if (!concurrent) {
+            return;
+        }
+        int[] threads = command.getThreads().hasValue() ? new int[] {command.getThreads().get()} : THREADS;
+        for (int count : threads) {
+            new Runner(options(command, "concurrent-" + count + "t")
+                    .exclude(SINGLE_THREADED)
+                    .threads(count)
+                    .build()).run();
+        }
+    }
+
+    private static ChainedOptionsBuilder options(CommandLineOptions command, String suite) {
+        return new OptionsBuilder()
+                .parent(command)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-" + suite + ".json");
+    }
+}
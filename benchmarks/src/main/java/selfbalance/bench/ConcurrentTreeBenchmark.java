@@ -0,0 +1,109 @@
+package selfbalance.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import selfbalance.ConcurrentSelfBalanceTree;
+import selfbalance.LockFreeSearchTree;
+import selfbalance.RedBlackTree;
+import selfbalance.SelfBalanceTreeInterface;
+import selfbalance.ShardedTree;
+
+// One tree shared by every benchmark thread, each running a read/write mix
+// over uniformly random keys. Reads are hits; a write toggles a missing key in
+// or out, so the size stays put. SYNCHRONIZED is a RedBlackTree behind one
+// monitor, STAMPED the same tree in ConcurrentSelfBalanceTree, SHARDED a
+// ShardedTree of such trees, and LOCK_FREE the non-blocking LockFreeSearchTree.
+//
+// Thread count is a run option rather than a parameter; BenchmarkRunner runs
+// this at 1, 4, 16 and 32 threads (java -jar benchmarks.jar Concurrent -t 16
+// for one count by hand).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ConcurrentTreeBenchmark {
+    public enum Implementation {
+        SYNCHRONIZED,
+        STAMPED,
+        SHARDED,
+        LOCK_FREE
+    }
+
+    @Param({"SYNCHRONIZED", "STAMPED", "SHARDED", "LOCK_FREE"})
+    public Implementation implementation;
+
+    @Param({"90", "99"})
+    public int readPercent;
+
+    @Param({"1000000"})
+    public int size;
+
+    private SelfBalanceTreeInterface<Integer> tree;
+
+    @Setup
+    public void setUp() {
+        switch (implementation) {
+            case STAMPED:
+                tree = new ConcurrentSelfBalanceTree<>(new RedBlackTree<Integer>());
+                break;
+            case SHARDED:
+                tree = new ShardedTree<>(Runtime.getRuntime().availableProcessors(), RedBlackTree::new);
+                break;
+            case LOCK_FREE:
+                tree = new LockFreeSearchTree<>();
+                break;
+            default:
+                tree = new RedBlackTree<>();
+        }
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = 2 * i;
+        }
+        tree.bulkLoad(keys);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public boolean mixed(ThreadRandom thread) {
+        SplittableRandom random = thread.random;
+        int key = 2 * random.nextInt(size);
+        if (random.nextInt(100) < readPercent) {
+            return implementation == Implementation.SYNCHRONIZED ? searchLocked(key) : tree.search(key);
+        }
+        return implementation == Implementation.SYNCHRONIZED ? toggleLocked(key + 1) : toggle(key + 1);
+    }
+
+    private boolean toggle(int key) {
+        return tree.insert(key) || tree.delete(key);
+    }
+
+    private synchronized boolean searchLocked(int key) {
+        return tree.search(key);
+    }
+
+    private synchronized boolean toggleLocked(int key) {
+        return toggle(key);
+    }
+}
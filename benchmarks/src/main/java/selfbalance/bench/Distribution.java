@@ -0,0 +1,72 @@
+package selfbalance.bench;
+
+import java.util.SplittableRandom;
+
+// Which of a tree's keys an access pattern touches. SEQUENTIAL walks them in
+// key order, RANDOM picks uniformly, and ZIPFIAN follows a Zipf law with
+// exponent 0.99 (the YCSB default) whose popular ranks are scattered over the
+// key space, so the hot keys do not all sit in one subtree.
+public enum Distribution {
+    SEQUENTIAL,
+    RANDOM,
+    ZIPFIAN;
+
+    private static final double THETA = 0.99;
+    private static final long SCRAMBLE = 1_000_000_007L; // Prime, so a bijection on [0, size)
+
+    // length indices into [0, size), the same for every run with the same seed
+    int[] indices(int size, int length, long seed) {
+        int[] indices = new int[length];
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < length; i++) {
+                    indices[i] = i % size;
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < length; i++) {
+                    indices[i] = random.nextInt(size);
+                }
+                break;
+            default:
+                Zipf zipf = new Zipf(size);
+                for (int i = 0; i < length; i++) {
+                    indices[i] = (int) (zipf.rank(random.nextDouble()) * SCRAMBLE % size);
+                }
+        }
+        return indices;
+    }
+
+    // Gray et al.'s closed-form Zipf sampler, as used by YCSB: one O(size)
+    // pass for the normalising constant, then O(1) per draw
+    private static final class Zipf {
+        private final int size;
+        private final double zeta;
+        private final double alpha;
+        private final double eta;
+
+        Zipf(int size) {
+            this.size = size;
+            double zeta = 0;
+            for (int i = 1; i <= size; i++) {
+                zeta += 1 / Math.pow(i, THETA);
+            }
+            double zeta2 = 1 + 1 / Math.pow(2, THETA);
+            this.zeta = zeta;
+            this.alpha = 1 / (1 - THETA);
+            this.eta = (1 - Math.pow(2.0 / size, 1 - THETA)) / (1 - zeta2 / zeta);
+        }
+
+        long rank(double uniform) {
+            double scaled = uniform * zeta;
+            if (scaled < 1) {
+                return 0;
+            }
+            if (scaled < 1 + Math.pow(0.5, THETA)) {
+                return Math.min(1, size - 1);
+            }
+            return Math.min(size - 1, (long) (size * Math.pow(eta * uniform - eta + 1, alpha)));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package selfbalance.bench;
+
+// Key types the benchmarks run with. Key number i maps to the Integer i or to
+// a String with a shared prefix and the zero-padded number, so both types sort
+// the same way and String comparisons walk a common prefix the way real
+// identifiers do. Trees are loaded with the even numbers, which makes every
+// odd number a guaranteed miss.
+public enum KeyType {
+    INTEGER {
+        @Override
+        Comparable<?> key(long number) {
+            return (int) number;
+        }
+    },
+    STRING {
+        @Override
+        Comparable<?> key(long number) {
+            char[] chars = "user:000000000000".toCharArray();
+            for (int i = chars.length - 1; number > 0; i--) {
+                chars[i] = (char) ('0' + number % 10);
+                number /= 10;
+            }
+            return new String(chars);
+        }
+    };
+
+    abstract Comparable<?> key(long number);
+
+    // Keys 0, 2, 4, ... in ascending order, ready for bulkLoad
+    Comparable<?>[] present(int size) {
+        Comparable<?>[] keys = new Comparable<?>[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = key(2L * i);
+        }
+        return keys;
+    }
+
+    // The miss that sorts right after present key i
+    Comparable<?> absent(int i) {
+        return key(2L * i + 1);
+    }
+}
@@ -0,0 +1,105 @@
+package selfbalance.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import selfbalance.SelfBalanceTreeInterface;
+
+// Whole-tree writes, timed once per iteration: size single inserts into an
+// empty tree, size single deletes draining a full one, and one bulkLoad.
+// Divide by size for the cost of one insert or delete as the tree grows or
+// shrinks through every height. Keys arrive in ascending order (SEQUENTIAL)
+// or as a random permutation (RANDOM).
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class TreeBuildBenchmark {
+    @Param({"AVL", "RED_BLACK", "B_TREE"})
+    public TreeKind tree;
+
+    @Param({"INTEGER", "STRING"})
+    public KeyType keyType;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public Distribution distribution;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Comparable[] sorted;
+    private Comparable[] order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sorted = keyType.present(size);
+        order = sorted.clone();
+        if (distribution == Distribution.RANDOM) {
+            // Fisher-Yates with the RANDOM pattern as the source of swaps
+            int[] swaps = Distribution.RANDOM.indices(Integer.MAX_VALUE, size, 42);
+            for (int i = size - 1; i > 0; i--) {
+                int j = swaps[i] % (i + 1);
+                Comparable key = order[i];
+                order[i] = order[j];
+                order[j] = key;
+            }
+        }
+    }
+
+    // Fresh trees per iteration, each built only for the benchmark using it
+    @State(Scope.Thread)
+    public static class EmptyTree {
+        SelfBalanceTreeInterface keys;
+
+        @Setup(Level.Iteration)
+        public void setUp(TreeBuildBenchmark benchmark) {
+            keys = benchmark.tree.create();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FullTree {
+        SelfBalanceTreeInterface keys;
+
+        @Setup(Level.Iteration)
+        public void setUp(TreeBuildBenchmark benchmark) {
+            keys = benchmark.tree.create();
+            keys.bulkLoad(benchmark.sorted);
+        }
+    }
+
+    @Benchmark
+    public SelfBalanceTreeInterface insertAll(EmptyTree empty) {
+        for (Comparable key : order) {
+            empty.keys.insert(key);
+        }
+        return empty.keys;
+    }
+
+    @Benchmark
+    public SelfBalanceTreeInterface deleteAll(FullTree full) {
+        for (Comparable key : order) {
+            full.keys.delete(key);
+        }
+        return full.keys;
+    }
+
+    @Benchmark
+    public SelfBalanceTreeInterface bulkLoad(EmptyTree empty) {
+        empty.keys.bulkLoad(sorted);
+        return empty.keys;
+    }
+}
@@ -0,0 +1,30 @@
+package selfbalance.bench;
+
+import selfbalance.AVLTree;
+import selfbalance.BTree;
+import selfbalance.RedBlackTree;
+import selfbalance.SelfBalanceTreeInterface;
+
+// The single-threaded trees under comparison
+public enum TreeKind {
+    AVL {
+        @Override
+        <T extends Comparable<T>> SelfBalanceTreeInterface<T> create() {
+            return new AVLTree<>();
+        }
+    },
+    RED_BLACK {
+        @Override
+        <T extends Comparable<T>> SelfBalanceTreeInterface<T> create() {
+            return new RedBlackTree<>();
+        }
+    },
+    B_TREE {
+        @Override
+        <T extends Comparable<T>> SelfBalanceTreeInterface<T> create() {
+            return new BTree<>();
+        }
+    };
+
+    abstract <T extends Comparable<T>> SelfBalanceTreeInterface<T> create();
+}
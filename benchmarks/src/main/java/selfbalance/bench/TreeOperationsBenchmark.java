@@ -0,0 +1,112 @@
+package selfbalance.bench;
+
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import selfbalance.SelfBalanceTreeInterface;
+
+// Steady-state operations on a tree of `size` keys. Every write is paired
+// with its undo, so the tree keeps its size however many operations an
+// iteration runs: insertDelete adds a missing key and takes it out again,
+// and the writes in mixed toggle a missing key in or out.
+//
+// Keys are drawn from a precomputed pattern of PATTERN accesses, so the
+// benchmark loop does no random number generation or key allocation.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class TreeOperationsBenchmark {
+    private static final int PATTERN = 1 << 20;
+    private static final int MASK = PATTERN - 1;
+    private static final int WRITE_PERCENT = 10;
+    private static final int SCAN_LENGTH = 100;
+
+    @Param({"AVL", "RED_BLACK", "B_TREE"})
+    public TreeKind tree;
+
+    @Param({"INTEGER", "STRING"})
+    public KeyType keyType;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public Distribution distribution;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private SelfBalanceTreeInterface keys;
+    private Comparable[] hits;
+    private Comparable[] misses;
+    private boolean[] writes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = tree.create();
+        Comparable[] present = keyType.present(size);
+        keys.bulkLoad(present);
+        int[] pattern = distribution.indices(size, PATTERN, 42);
+        hits = new Comparable[PATTERN];
+        misses = new Comparable[PATTERN];
+        writes = new boolean[PATTERN];
+        SplittableRandom random = new SplittableRandom(43);
+        for (int i = 0; i < PATTERN; i++) {
+            hits[i] = present[pattern[i]];
+            misses[i] = keyType.absent(pattern[i]);
+            writes[i] = random.nextInt(100) < WRITE_PERCENT;
+        }
+    }
+
+    @Benchmark
+    public boolean searchHit() {
+        return keys.search(hits[next++ & MASK]);
+    }
+
+    @Benchmark
+    public boolean searchMiss() {
+        return keys.search(misses[next++ & MASK]);
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        Comparable key = misses[next++ & MASK];
+        keys.insert(key);
+        return keys.delete(key);
+    }
+
+    // 90% hits, 10% writes
+    @Benchmark
+    public boolean mixed() {
+        int i = next++ & MASK;
+        if (!writes[i]) {
+            return keys.search(hits[i]);
+        }
+        Comparable key = misses[i];
+        return keys.insert(key) || keys.delete(key);
+    }
+
+    // Ordered scan of SCAN_LENGTH keys from a present key
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        Iterator range = keys.range(hits[next++ & MASK], true, null, false);
+        for (int i = 0; i < SCAN_LENGTH && range.hasNext(); i++) {
+            blackhole.consume(range.next());
+        }
+    }
+}
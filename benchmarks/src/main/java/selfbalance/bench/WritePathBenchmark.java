@@ -0,0 +1,127 @@
+package selfbalance.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import selfbalance.AVLTree;
+
+// AVLTree against BaselineAVLTree on String keys: what single-pass writes
+// save, net of what maintaining subtree counts for rank/select costs. Writes
+// are insert-then-delete pairs of a missing key, as in TreeOperationsBenchmark.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class WritePathBenchmark {
+    private static final int PATTERN = 1 << 20;
+    private static final int MASK = PATTERN - 1;
+
+    public enum Implementation {
+        CURRENT,
+        BASELINE
+    }
+
+    // The three operations both trees have; only one implementation is
+    // loaded per fork, so calls through it stay monomorphic
+    private interface Writes {
+        boolean insert(String key);
+
+        boolean delete(String key);
+
+        boolean search(String key);
+    }
+
+    @Param({"CURRENT", "BASELINE"})
+    public Implementation implementation;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public Distribution distribution;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Writes tree;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] present = new String[size];
+        for (int i = 0; i < size; i++) {
+            present[i] = (String) KeyType.STRING.key(2L * i);
+        }
+        if (implementation == Implementation.CURRENT) {
+            AVLTree<String> current = new AVLTree<>();
+            current.bulkLoad(present);
+            tree = new Writes() {
+                public boolean insert(String key) {
+                    return current.insert(key);
+                }
+
+                public boolean delete(String key) {
+                    return current.delete(key);
+                }
+
+                public boolean search(String key) {
+                    return current.search(key);
+                }
+            };
+        } else {
+            BaselineAVLTree<String> baseline = new BaselineAVLTree<>();
+            baseline.build(present);
+            tree = new Writes() {
+                public boolean insert(String key) {
+                    return baseline.insert(key);
+                }
+
+                public boolean delete(String key) {
+                    return baseline.delete(key);
+                }
+
+                public boolean search(String key) {
+                    return baseline.search(key);
+                }
+            };
+        }
+        int[] pattern = distribution.indices(size, PATTERN, 42);
+        hits = new String[PATTERN];
+        misses = new String[PATTERN];
+        for (int i = 0; i < PATTERN; i++) {
+            hits[i] = present[pattern[i]];
+            misses[i] = (String) KeyType.STRING.absent(pattern[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        String key = misses[next++ & MASK];
+        tree.insert(key);
+        return tree.delete(key);
+    }
+
+    // Inserting a present key and deleting a missing one: the early-out
+    // paths the baseline answered with its pre-search
+    @Benchmark
+    public boolean duplicateInsertMissingDelete() {
+        int i = next++ & MASK;
+        return tree.insert(hits[i]) | tree.delete(misses[i]);
+    }
+
+    @Benchmark
+    public boolean searchHit() {
+        return tree.search(hits[next++ & MASK]);
+    }
+}
@@ -0,0 +1,821 @@
+package selfbalance;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class AVLTree<T extends Comparable<T>> implements OrderStatisticTreeInterface<T>, BoundedSearch<T> {
+    class Node {
+        T value;
+        Node left;
+        Node right;
+        int height;
+        int count; // Nodes in this subtree, for rank/select
+
+        public Node(T value) {
+            this.value = value;
+            this.height = 1;
+            this.count = 1;
+            this.left = null;
+            this.right = null;
+        }
+    }
+    
+    private Node root = null;
+    private int size = 0;
+    private int modCount = 0; // Structural changes, for fail-fast iterators
+
+    // Set by the recursive insert/delete when the tree actually changed,
+    // so a write needs only one descent instead of search() + update.
+    private boolean modified = false;
+
+    // Hot-path counters, null unless -Dselfbalance.metrics=true. The
+    // recursive insert/delete count their compares in pathLength.
+    private final TreeMetrics metrics = TreeMetrics.ENABLED ? new TreeMetrics() : null;
+    private int pathLength = 0;
+
+    // Update insert method
+    @Override
+    public boolean insert(T value) {
+        modified = false;
+        pathLength = 0;
+        root = insert(root, value);
+        if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.INSERT, pathLength);
+        if (!modified) return false; // Avoid duplicates
+        size++;
+        modCount++;
+        return true;
+    }
+
+    private Node insert(Node current, T value) {
+        if (current == null) {
+            modified = true;
+            return new Node(value);
+        }
+        if (TreeMetrics.ENABLED) pathLength++;
+        int comparison = value.compareTo(current.value);
+        if (comparison < 0) {
+            current.left = insert(current.left, value);
+        } else if (comparison > 0) {
+            current.right = insert(current.right, value);
+        } else {
+            return current; // Already present, nothing below changed
+        }
+        return modified ? balanceTree(current) : current;
+    }
+
+    // Update search methods
+    public boolean search(T value) {
+        return search(root, value) != null;
+    }
+
+    // Iterative descent with a single three-way compare per level
+    private Node search(Node current, T value) {
+        int depth = 0;
+        while (current != null) {
+            if (TreeMetrics.ENABLED) depth++;
+            int comparison = value.compareTo(current.value);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                break;
+            }
+        }
+        if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.SEARCH, depth);
+        return current;
+    }
+
+    // search() for readers that may race a rotation; gives up after maxSteps
+    @Override
+    public int searchWithin(T value, int maxSteps) {
+        Node current = root;
+        int steps = 0;
+        while (current != null) {
+            if (steps++ == maxSteps) {
+                return GAVE_UP;
+            }
+            int comparison = value.compareTo(current.value);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                break;
+            }
+        }
+        return current != null ? steps : -steps;
+    }
+
+    @Override
+    public void recordSearch(int comparisons) {
+        if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.SEARCH, comparisons);
+    }
+
+    // Update delete methods
+    @Override
+    public boolean delete(T value) {
+        modified = false;
+        pathLength = 0;
+        root = delete(root, value);
+        if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.DELETE, pathLength);
+        if (!modified) return false; // Not found
+        size--;
+        modCount++;
+        return true;
+    }
+
+    private Node delete(Node root, T key) {
+        if (root == null) {
+            return null;
+        }
+        
+        if (TreeMetrics.ENABLED) pathLength++;
+        int comparison = key.compareTo(root.value);
+        if (comparison < 0) {
+            root.left = delete(root.left, key);
+        } else if (comparison > 0) {
+            root.right = delete(root.right, key);
+        } else {
+            modified = true;
+            if (root.left == null) {
+                return root.right;
+            }
+            else if (root.right == null) {
+                return root.left;
+            }
+            
+            Node temp = getPredecessor(root.left);
+            root.value = temp.value;
+            root.left = deleteMax(root.left);
+        }
+        
+        return modified ? balanceTree(root) : root;
+    }
+
+    // Unlinks the rightmost node of the subtree without comparing keys
+    private Node deleteMax(Node node) {
+        if (node.right == null) {
+            return node.left;
+        }
+        node.right = deleteMax(node.right);
+        return balanceTree(node);
+    }
+
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        root = build(keys, 0, keys.length - 1);
+        size = keys.length;
+        modCount++;
+    }
+
+    // Builds a perfectly balanced subtree from keys[lo..hi], heights bottom-up
+    private Node build(T[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(keys[mid]);
+        node.left = build(keys, lo, mid - 1);
+        node.right = build(keys, mid + 1, hi);
+        updateHeight(node);
+        return node;
+    }
+
+    // Keys applied by the current batch operation
+    private int batchApplied = 0;
+
+    @Override
+    public BatchResult insertAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        root = insertAll(root, keys, 0, keys.length);
+        size += batchApplied;
+        modCount++;
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    // Union of the subtree with the sorted keys[lo..hi): the keys are split
+    // around each node on the way down and the halves joined on the way up
+    private Node insertAll(Node node, T[] keys, int lo, int hi) {
+        if (lo >= hi) {
+            return node;
+        }
+        if (node == null) {
+            batchApplied += hi - lo;
+            return build(keys, lo, hi - 1);
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node left = insertAll(node.left, keys, lo, split);
+        Node right = insertAll(node.right, keys, present ? split + 1 : split, hi);
+        return join(left, node, right);
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        root = deleteAll(root, keys, 0, keys.length);
+        size -= batchApplied;
+        modCount++;
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    // Difference of the subtree and the sorted keys[lo..hi)
+    private Node deleteAll(Node node, T[] keys, int lo, int hi) {
+        if (node == null || lo >= hi) {
+            return node;
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node left = deleteAll(node.left, keys, lo, split);
+        Node right = deleteAll(node.right, keys, present ? split + 1 : split, hi);
+        if (present) {
+            batchApplied++;
+            return join2(left, right);
+        }
+        return join(left, node, right);
+    }
+
+    @Override
+    public BatchResult containsAll(Collection<T> values) {
+        T[] keys = SortedKeys.sorted(SortedKeys.toArray(values));
+        int found = countPresent(root, keys, 0, keys.length);
+        return new BatchResult(found, keys.length - found);
+    }
+
+    private int countPresent(Node node, T[] keys, int lo, int hi) {
+        if (node == null || lo >= hi) {
+            return 0;
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        int end = split;
+        while (end < hi && keys[end].compareTo(node.value) == 0) {
+            end++;
+        }
+        return (end - split) + countPresent(node.left, keys, lo, split)
+                + countPresent(node.right, keys, end, hi);
+    }
+
+    // Joins left < mid < right into one AVL tree in O(|height difference|)
+    private Node join(Node left, Node mid, Node right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            left.right = join(left.right, mid, right);
+            return balanceTree(left);
+        }
+        if (rightHeight > leftHeight + 1) {
+            right.left = join(left, mid, right.left);
+            return balanceTree(right);
+        }
+        mid.left = left;
+        mid.right = right;
+        updateHeight(mid);
+        return mid;
+    }
+
+    // Joins left < right, using the maximum of left as the middle node
+    private Node join2(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        Node max = getPredecessor(left);
+        return join(deleteMax(left), max, right);
+    }
+
+    // Set operations below work on whole trees by split and join, in
+    // O(m log(n/m + 1)) for trees of m <= n keys. They reuse the nodes of
+    // both trees: the result replaces this tree's contents and the other
+    // tree is left empty. In parallel mode the two halves of every large
+    // enough step run as separate fork-join tasks.
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    // Joins left < key < right into a new tree; both trees are left empty
+    public static <T extends Comparable<T>> AVLTree<T> join(AVLTree<T> left, T key, AVLTree<T> right) {
+        T leftLast = left.last();
+        T rightFirst = right.first();
+        if ((leftLast != null && leftLast.compareTo(key) >= 0)
+                || (rightFirst != null && rightFirst.compareTo(key) <= 0)) {
+            throw new IllegalArgumentException("Keys of the left tree must be below " + key
+                    + " and keys of the right tree above it");
+        }
+        AVLTree<T> joined = new AVLTree<>();
+        joined.setRoot(joined.join(left.root, joined.new Node(key), right.root));
+        left.setRoot(null);
+        right.setRoot(null);
+        return joined;
+    }
+
+    // Moves the keys greater than or equal to key into the returned tree
+    public AVLTree<T> split(T key) {
+        Split parts = split(root, key);
+        AVLTree<T> upper = new AVLTree<>();
+        upper.setRoot(parts.found == null ? parts.right : join(null, parts.found, parts.right));
+        setRoot(parts.left);
+        return upper;
+    }
+
+    public void union(AVLTree<T> other) {
+        union(other, false);
+    }
+
+    public void union(AVLTree<T> other, boolean parallel) {
+        if (other == this) {
+            return;
+        }
+        Node result = parallel
+                ? ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> union(root, other.root, true)))
+                : union(root, other.root, false);
+        setRoot(result);
+        other.setRoot(null);
+    }
+
+    public void intersection(AVLTree<T> other) {
+        intersection(other, false);
+    }
+
+    public void intersection(AVLTree<T> other, boolean parallel) {
+        if (other == this) {
+            return;
+        }
+        Node result = parallel
+                ? ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> intersection(root, other.root, true)))
+                : intersection(root, other.root, false);
+        setRoot(result);
+        other.setRoot(null);
+    }
+
+    // Removes the keys of other from this tree
+    public void difference(AVLTree<T> other) {
+        difference(other, false);
+    }
+
+    public void difference(AVLTree<T> other, boolean parallel) {
+        if (other == this) {
+            setRoot(null);
+            return;
+        }
+        Node result = parallel
+                ? ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> difference(root, other.root, true)))
+                : difference(root, other.root, false);
+        setRoot(result);
+        other.setRoot(null);
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        size = count(node);
+        modCount++;
+    }
+
+    // A split subtree: the keys below and above the split key, and the node
+    // that held the key itself, if any
+    private final class Split {
+        final Node left;
+        final Node right;
+        final Node found;
+
+        Split(Node left, Node right, Node found) {
+            this.left = left;
+            this.right = right;
+            this.found = found;
+        }
+    }
+
+    private Split split(Node node, T key) {
+        if (node == null) {
+            return new Split(null, null, null);
+        }
+        Node left = node.left;
+        Node right = node.right;
+        int comparison = key.compareTo(node.value);
+        if (comparison < 0) {
+            Split parts = split(left, key);
+            return new Split(parts.left, join(parts.right, node, right), parts.found);
+        }
+        if (comparison > 0) {
+            Split parts = split(right, key);
+            return new Split(join(left, node, parts.left), parts.right, parts.found);
+        }
+        return new Split(left, right, node);
+    }
+
+    private boolean forkable(Node a, Node b, boolean parallel) {
+        return parallel && count(a) + count(b) >= PARALLEL_THRESHOLD;
+    }
+
+    // a's root splits b; the halves are merged recursively and joined back
+    // around a's root, whose duplicate in b (if any) is dropped
+    private Node union(Node a, Node b, boolean parallel) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        Node aLeft = a.left;
+        Node aRight = a.right;
+        Split parts = split(b, a.value);
+        ForkJoinTask<Node> leftTask = forkable(aLeft, parts.left, parallel)
+                ? ForkJoinTask.adapt(() -> union(aLeft, parts.left, true)).fork() : null;
+        Node right = union(aRight, parts.right, parallel);
+        Node left = leftTask != null ? leftTask.join() : union(aLeft, parts.left, parallel);
+        return join(left, a, right);
+    }
+
+    // Same walk as union, keeping a's root only when b holds it too
+    private Node intersection(Node a, Node b, boolean parallel) {
+        if (a == null || b == null) {
+            return null;
+        }
+        Node aLeft = a.left;
+        Node aRight = a.right;
+        Split parts = split(b, a.value);
+        ForkJoinTask<Node> leftTask = forkable(aLeft, parts.left, parallel)
+                ? ForkJoinTask.adapt(() -> intersection(aLeft, parts.left, true)).fork() : null;
+        Node right = intersection(aRight, parts.right, parallel);
+        Node left = leftTask != null ? leftTask.join() : intersection(aLeft, parts.left, parallel);
+        return parts.found != null ? join(left, a, right) : join2(left, right);
+    }
+
+    // b's root splits a and is dropped from it; the halves lose the rest of
+    // b recursively
+    private Node difference(Node a, Node b, boolean parallel) {
+        if (a == null || b == null) {
+            return a;
+        }
+        Node bLeft = b.left;
+        Node bRight = b.right;
+        Split parts = split(a, b.value);
+        ForkJoinTask<Node> leftTask = forkable(parts.left, bLeft, parallel)
+                ? ForkJoinTask.adapt(() -> difference(parts.left, bLeft, true)).fork() : null;
+        Node right = difference(parts.right, bRight, parallel);
+        Node left = leftTask != null ? leftTask.join() : difference(parts.left, bLeft, parallel);
+        return join2(left, right);
+    }
+
+    public int height(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        return node.height;
+    }
+   public int balance(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        return height(node.right) - height(node.left);
+    }
+    public int count(Node node) {
+        return node == null ? 0 : node.count;
+    }
+   // Refreshes both cached fields, height and subtree size, from the children
+   public void updateHeight(Node node) {
+        if (node != null) {
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            node.count = count(node.left) + count(node.right) + 1;
+        }
+    }
+   public Node rightRotate(Node y) {
+        Node x = y.left;
+        Node T2 = x.right;
+        x.right = y;
+        y.left = T2;
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+   public Node leftRotate(Node x) {
+        Node y = x.right;
+        Node T2 = y.left;
+        y.left = x;
+        x.right = T2;
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+    // balance=height(right subtree)-height(left subtree)
+   public Node balanceTree(Node root) {
+        updateHeight(root);
+        int balance = balance(root);
+        if (balance > 1){ // Right Heavy (balance > 1)
+            if (balance(root.right) < 0){//RL
+                if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.RL);
+                root.right = rightRotate(root.right);
+                return leftRotate(root);
+            }else{ //RR
+                if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.RR);
+                return leftRotate(root);
+            }
+        }
+        if (balance < -1)//Left Heavy (balance < -1)
+        {
+            if (balance(root.left) > 0){ //LR
+                if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.LR);
+                root.left = leftRotate(root.left);
+                return rightRotate(root);
+            }else {//LL
+                if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.LL);
+                return rightRotate(root);
+            }
+        }
+        return root;
+    }
+    private Node getPredecessor(Node root) {
+        while (root.right != null)
+            root = root.right;
+        return root;
+    }
+    
+    public void traverseInOrder() {
+    traverseInOrder(root);
+    System.out.println(); 
+    }
+    private void traverseInOrder(Node node) {
+    if (node == null) return;
+    // Traverse left subtree, visit node, then traverse right subtree   
+    traverseInOrder(node.left);
+    System.out.print(node.value + " ");
+    traverseInOrder(node.right);
+    }
+    public void traversePreOrder() {
+        traversePreOrder(root);
+        System.out.println(); 
+    }
+    private void traversePreOrder(Node node) {
+        if (node == null) return;
+        // Visit node, traverse left subtree, then traverse right subtree
+        System.out.print(node.value + " ");
+        traversePreOrder(node.left);
+        traversePreOrder(node.right);
+    }
+    public void traversePostOrder() {
+        traversePostOrder(root);
+        System.out.println(); 
+    }
+    private void traversePostOrder(Node node) {
+        if (node == null) return;
+        // Traverse left subtree, traverse right subtree, then visit node
+        traversePostOrder(node.left);
+        traversePostOrder(node.right);
+        System.out.print(node.value + " ");
+    }
+    public int getHeight() {
+        return height(root);
+    }
+    // Counters since construction or the last resetMetrics(); empty unless
+    // metrics are enabled
+    public TreeMetrics.Snapshot metrics() {
+        return TreeMetrics.ENABLED ? metrics.snapshot() : TreeMetrics.Snapshot.EMPTY;
+    }
+
+    public void resetMetrics() {
+        if (TreeMetrics.ENABLED) metrics.reset();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public int rank(T value) {
+        return countBelow(value, false);
+    }
+
+    @Override
+    public T select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node node = root;
+        while (true) {
+            int leftCount = count(node.left);
+            if (index < leftCount) {
+                node = node.left;
+            } else if (index > leftCount) {
+                index -= leftCount + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    @Override
+    public int countRange(T lo, T hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return countBelow(hi, true) - countBelow(lo, false);
+    }
+
+    // Keys less than value (or equal to it when inclusive)
+    private int countBelow(T value, boolean inclusive) {
+        Node node = root;
+        int below = 0;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                below += count(node.left) + 1;
+                node = node.right;
+            } else {
+                return below + count(node.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return below;
+    }
+
+    @Override
+    public T first() {
+        if (root == null) {
+            return null;
+        }
+        Node node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T last() {
+        if (root == null) {
+            return null;
+        }
+        Node node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    // Greatest key below value (or equal to it when inclusive), in one descent
+    private T below(T value, boolean inclusive) {
+        Node node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison > 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    // Least key above value (or equal to it when inclusive), in one descent
+    private T above(T value, boolean inclusive) {
+        Node node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return new Cursor().startRange(root, from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Cursor().start(root, size);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new Cursor().start(root, size);
+    }
+
+    private class Cursor extends TreeCursor<Node, T> {
+        @Override
+        protected Node left(Node node) {
+            return node.left;
+        }
+
+        @Override
+        protected Node right(Node node) {
+            return node.right;
+        }
+
+        @Override
+        protected T value(Node node) {
+            return node.value;
+        }
+
+        @Override
+        protected int modCount() {
+            return modCount;
+        }
+
+        @Override
+        protected long subtreeSize(Node node) {
+            return count(node);
+        }
+
+        @Override
+        protected TreeCursor<Node, T> newCursor() {
+            return new Cursor();
+        }
+    }
+    
+    public static void main(String[] args) {
+        AVLTree<String> tree = new AVLTree<>();
+        
+        System.out.println("=== AVL Tree Test ===");
+        
+        // Test with Strings
+        String[] values = {"M", "N", "O", "L", "K", "Q", "P", "H", "I", "A"};
+        for (String value : values) {
+            tree.insert(value);
+            System.out.println("Inserted: " + value);
+        }
+
+        // Test with Integers
+        AVLTree<Integer> intTree = new AVLTree<>();
+        Integer[] numbers = {10, 20, 30, 40, 50, 25};
+        for (Integer num : numbers) {
+            intTree.insert(num);
+            System.out.println("Inserted: " + num);
+        }
+        
+        // Tree info
+        System.out.println("\nTree size: " + tree.getSize());
+        System.out.println("Tree height: " + tree.getHeight());
+        
+        // Traversals
+        System.out.print("\nIn-order traversal: ");
+        tree.traverseInOrder();
+        System.out.print("Pre-order traversal: ");
+        tree.traversePreOrder();
+        System.out.print("Post-order traversal: ");
+        tree.traversePostOrder();
+        
+        // Search tests
+        System.out.println("\n\nSearch for 'M': " + tree.search("M"));
+        
+        System.out.println("\nDeleting root ('H'): " + tree.delete("H"));
+        System.out.println("\nDeleting root ('K'): " + tree.delete("K"));
+        System.out.println("\nDeleting root ('N'): " + tree.delete("N"));
+        
+        // Verify new root
+        System.out.print("\nIn-order");
+        tree.traverseInOrder();
+        System.out.print("Pre-order");
+        tree.traversePreOrder();
+        
+        // Final tree info
+        System.out.println("\nFinal tree size: " + tree.getSize());
+        System.out.println("Final tree height: " + tree.getHeight());
+        System.out.print("\nFinal in-order traversal: ");
+        tree.traverseInOrder();
+        System.out.print("Final pre-order traversal: ");
+        tree.traversePreOrder();
+    }
+
+    
+   
+}
@@ -0,0 +1,274 @@
+package selfbalance;
+
+import java.util.ConcurrentModificationException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Key-value flavour of AVLTree: the node carries the payload next to the key,
+// and every write is a single descent that updates an existing entry in place
+public class AVLTreeMap<K extends Comparable<K>, V> {
+    class Node {
+        K key;
+        V value;
+        Node left;
+        Node right;
+        int height;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+            this.height = 1;
+        }
+    }
+
+    private Node root = null;
+    private int size = 0;
+    private int modCount = 0; // Structural changes, to catch reentrant mapping functions
+    // Outcome of the current write: +1 inserted, -1 removed, 0 structure unchanged
+    private int sizeChange = 0;
+    // Value replaced, removed or found by the current write
+    private V result = null;
+
+    public V get(K key) {
+        Node node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    private Node find(K key) {
+        Node current = root;
+        while (current != null) {
+            int comparison = key.compareTo(current.key);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    // Returns the previous value, or null when the key was new
+    public V put(K key, V value) {
+        begin();
+        root = put(root, key, value);
+        return finish();
+    }
+
+    private Node put(Node current, K key, V value) {
+        if (current == null) {
+            sizeChange = 1;
+            return new Node(key, value);
+        }
+        int comparison = key.compareTo(current.key);
+        if (comparison < 0) {
+            current.left = put(current.left, key, value);
+        } else if (comparison > 0) {
+            current.right = put(current.right, key, value);
+        } else {
+            result = current.value;
+            current.value = value; // Update in place, no rebalancing needed
+            return current;
+        }
+        return sizeChange != 0 ? balanceTree(current) : current;
+    }
+
+    // Returns the removed value, or null when the key was absent
+    public V remove(K key) {
+        begin();
+        root = remove(root, key);
+        return finish();
+    }
+
+    private Node remove(Node current, K key) {
+        if (current == null) {
+            return null;
+        }
+        int comparison = key.compareTo(current.key);
+        if (comparison < 0) {
+            current.left = remove(current.left, key);
+        } else if (comparison > 0) {
+            current.right = remove(current.right, key);
+        } else {
+            result = current.value;
+            return unlink(current);
+        }
+        return sizeChange != 0 ? balanceTree(current) : current;
+    }
+
+    // Returns the existing value, or the computed one when the key was absent.
+    // A null from the mapping function leaves the map unchanged. Like TreeMap,
+    // throws ConcurrentModificationException if the function added or removed
+    // entries, since the descent it ran in is then out of date
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        begin();
+        root = computeIfAbsent(root, key, mappingFunction);
+        return finish();
+    }
+
+    private Node computeIfAbsent(Node current, K key, Function<? super K, ? extends V> mappingFunction) {
+        if (current == null) {
+            int expectedModCount = modCount;
+            V value = mappingFunction.apply(key);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (value == null) {
+                return null;
+            }
+            result = value;
+            sizeChange = 1;
+            return new Node(key, value);
+        }
+        int comparison = key.compareTo(current.key);
+        if (comparison < 0) {
+            current.left = computeIfAbsent(current.left, key, mappingFunction);
+        } else if (comparison > 0) {
+            current.right = computeIfAbsent(current.right, key, mappingFunction);
+        } else {
+            result = current.value;
+            return current;
+        }
+        return sizeChange != 0 ? balanceTree(current) : current;
+    }
+
+    // Stores value for a new key, otherwise combines it with the existing one;
+    // a null combination removes the entry. Returns the new value or null.
+    // Throws ConcurrentModificationException if the function added or removed
+    // entries
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        begin();
+        root = merge(root, key, value, remappingFunction);
+        return finish();
+    }
+
+    private Node merge(Node current, K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (current == null) {
+            result = value;
+            sizeChange = 1;
+            return new Node(key, value);
+        }
+        int comparison = key.compareTo(current.key);
+        if (comparison < 0) {
+            current.left = merge(current.left, key, value, remappingFunction);
+        } else if (comparison > 0) {
+            current.right = merge(current.right, key, value, remappingFunction);
+        } else {
+            int expectedModCount = modCount;
+            V merged = remappingFunction.apply(current.value, value);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (merged == null) {
+                return unlink(current);
+            }
+            result = merged;
+            current.value = merged;
+            return current;
+        }
+        return sizeChange != 0 ? balanceTree(current) : current;
+    }
+
+    private void begin() {
+        sizeChange = 0;
+        result = null;
+    }
+
+    private V finish() {
+        size += sizeChange;
+        if (sizeChange != 0) {
+            modCount++;
+        }
+        V value = result;
+        result = null;
+        return value;
+    }
+
+    // Removes current from its subtree and returns the subtree's new root
+    private Node unlink(Node current) {
+        sizeChange = -1;
+        if (current.left == null) {
+            return current.right;
+        } else if (current.right == null) {
+            return current.left;
+        }
+        Node predecessor = current.left;
+        while (predecessor.right != null) {
+            predecessor = predecessor.right;
+        }
+        current.key = predecessor.key;
+        current.value = predecessor.value;
+        current.left = deleteMax(current.left);
+        return balanceTree(current);
+    }
+
+    private Node deleteMax(Node node) {
+        if (node.right == null) {
+            return node.left;
+        }
+        node.right = deleteMax(node.right);
+        return balanceTree(node);
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private int balance(Node node) {
+        return node == null ? 0 : height(node.right) - height(node.left);
+    }
+
+    private void updateHeight(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    private Node rightRotate(Node y) {
+        Node x = y.left;
+        y.left = x.right;
+        x.right = y;
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    private Node leftRotate(Node x) {
+        Node y = x.right;
+        x.right = y.left;
+        y.left = x;
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    // balance=height(right subtree)-height(left subtree)
+    private Node balanceTree(Node root) {
+        updateHeight(root);
+        int balance = balance(root);
+        if (balance > 1) {
+            if (balance(root.right) < 0) { // RL
+                root.right = rightRotate(root.right);
+            }
+            return leftRotate(root);
+        }
+        if (balance < -1) {
+            if (balance(root.left) > 0) { // LR
+                root.left = leftRotate(root.left);
+            }
+            return rightRotate(root);
+        }
+        return root;
+    }
+
+    public int getHeight() {
+        return height(root);
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
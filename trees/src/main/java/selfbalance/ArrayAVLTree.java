@@ -0,0 +1,450 @@
+package selfbalance;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+// AVL tree whose nodes live in parallel arrays instead of separate objects.
+// A node is an int index into left/right/height/values; index 0 is the empty
+// subtree (height 0), and deleted slots are chained through left[] for reuse.
+public class ArrayAVLTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
+    private static final int NIL = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private Object[] values;
+
+    private int root = NIL;
+    private int size = 0;
+    private int nextUnused = 1; // First slot never handed out yet
+    private int freeList = NIL; // Most recently released slot
+    private boolean modified = false;
+    private int modCount = 0; // Structural changes, for fail-fast iterators
+
+    public ArrayAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ArrayAVLTree(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 1) + 1);
+    }
+
+    private void allocate(int capacity) {
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int node) {
+        return (T) values[node];
+    }
+
+    private int newNode(T value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (nextUnused == values.length) {
+                int capacity = values.length * 2;
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                height = Arrays.copyOf(height, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            node = nextUnused++;
+        }
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 1;
+        return node;
+    }
+
+    private void releaseNode(int node) {
+        values[node] = null; // Let the key be collected
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    @Override
+    public boolean insert(T value) {
+        modified = false;
+        root = insert(root, value);
+        if (!modified) return false; // Avoid duplicates
+        size++;
+        modCount++;
+        return true;
+    }
+
+    private int insert(int current, T value) {
+        if (current == NIL) {
+            modified = true;
+            return newNode(value);
+        }
+        int comparison = value.compareTo(value(current));
+        // The arrays may be reallocated below, so store through them afterwards
+        if (comparison < 0) {
+            int child = insert(left[current], value);
+            left[current] = child;
+        } else if (comparison > 0) {
+            int child = insert(right[current], value);
+            right[current] = child;
+        } else {
+            return current;
+        }
+        return modified ? balanceTree(current) : current;
+    }
+
+    @Override
+    public boolean search(T value) {
+        int current = root;
+        while (current != NIL) {
+            int comparison = value.compareTo(value(current));
+            if (comparison < 0) {
+                current = left[current];
+            } else if (comparison > 0) {
+                current = right[current];
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean delete(T value) {
+        modified = false;
+        root = delete(root, value);
+        if (!modified) return false; // Not found
+        size--;
+        modCount++;
+        return true;
+    }
+
+    private int delete(int current, T key) {
+        if (current == NIL) {
+            return NIL;
+        }
+        int comparison = key.compareTo(value(current));
+        if (comparison < 0) {
+            int child = delete(left[current], key);
+            left[current] = child;
+        } else if (comparison > 0) {
+            int child = delete(right[current], key);
+            right[current] = child;
+        } else {
+            modified = true;
+            if (left[current] == NIL || right[current] == NIL) {
+                int child = left[current] == NIL ? right[current] : left[current];
+                releaseNode(current);
+                return child;
+            }
+            int predecessor = left[current];
+            while (right[predecessor] != NIL) {
+                predecessor = right[predecessor];
+            }
+            values[current] = values[predecessor];
+            int child = deleteMax(left[current]);
+            left[current] = child;
+        }
+        return modified ? balanceTree(current) : current;
+    }
+
+    private int deleteMax(int node) {
+        if (right[node] == NIL) {
+            int child = left[node];
+            releaseNode(node);
+            return child;
+        }
+        int child = deleteMax(right[node]);
+        right[node] = child;
+        return balanceTree(node);
+    }
+
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        allocate(Math.max(keys.length, DEFAULT_CAPACITY) + 1);
+        nextUnused = 1;
+        freeList = NIL;
+        root = build(keys, 0, keys.length - 1);
+        size = keys.length;
+        modCount++;
+    }
+
+    private int build(T[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        int node = newNode(keys[mid]);
+        int leftChild = build(keys, lo, mid - 1);
+        int rightChild = build(keys, mid + 1, hi);
+        left[node] = leftChild;
+        right[node] = rightChild;
+        updateHeight(node);
+        return node;
+    }
+
+    private int balance(int node) {
+        return height[right[node]] - height[left[node]];
+    }
+
+    private void updateHeight(int node) {
+        height[node] = Math.max(height[left[node]], height[right[node]]) + 1;
+    }
+
+    private int rightRotate(int y) {
+        int x = left[y];
+        left[y] = right[x];
+        right[x] = y;
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    private int leftRotate(int x) {
+        int y = right[x];
+        right[x] = left[y];
+        left[y] = x;
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    // balance=height(right subtree)-height(left subtree)
+    private int balanceTree(int root) {
+        updateHeight(root);
+        int balance = balance(root);
+        if (balance > 1) {
+            if (balance(right[root]) < 0) { // RL
+                right[root] = rightRotate(right[root]);
+            }
+            return leftRotate(root);
+        }
+        if (balance < -1) {
+            if (balance(left[root]) > 0) { // LR
+                left[root] = leftRotate(left[root]);
+            }
+            return rightRotate(root);
+        }
+        return root;
+    }
+
+    @Override
+    public void traverseInOrder() {
+        traverseInOrder(root);
+        System.out.println();
+    }
+
+    private void traverseInOrder(int node) {
+        if (node == NIL) return;
+        traverseInOrder(left[node]);
+        System.out.print(values[node] + " ");
+        traverseInOrder(right[node]);
+    }
+
+    @Override
+    public void traversePreOrder() {
+        traversePreOrder(root);
+        System.out.println();
+    }
+
+    private void traversePreOrder(int node) {
+        if (node == NIL) return;
+        System.out.print(values[node] + " ");
+        traversePreOrder(left[node]);
+        traversePreOrder(right[node]);
+    }
+
+    @Override
+    public void traversePostOrder() {
+        traversePostOrder(root);
+        System.out.println();
+    }
+
+    private void traversePostOrder(int node) {
+        if (node == NIL) return;
+        traversePostOrder(left[node]);
+        traversePostOrder(right[node]);
+        System.out.print(values[node] + " ");
+    }
+
+    @Override
+    public int getHeight() {
+        return height[root];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public T first() {
+        if (root == NIL) {
+            return null;
+        }
+        int node = root;
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return value(node);
+    }
+
+    @Override
+    public T last() {
+        if (root == NIL) {
+            return null;
+        }
+        int node = root;
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return value(node);
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    private T below(T value, boolean inclusive) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            int comparison = value.compareTo(value(node));
+            if (comparison > 0 || (comparison == 0 && inclusive)) {
+                best = node;
+                if (comparison == 0) {
+                    break;
+                }
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return value(best);
+    }
+
+    private T above(T value, boolean inclusive) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            int comparison = value.compareTo(value(node));
+            if (comparison < 0 || (comparison == 0 && inclusive)) {
+                best = node;
+                if (comparison == 0) {
+                    break;
+                }
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return value(best);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Cursor cursor = new Cursor();
+        cursor.pushLeft(root);
+        return cursor;
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        Cursor cursor = new Cursor();
+        cursor.to = to;
+        cursor.toInclusive = toInclusive;
+        int node = root;
+        while (node != NIL) {
+            int comparison = value(node).compareTo(from);
+            if (comparison > 0 || (comparison == 0 && fromInclusive)) {
+                cursor.push(node);
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return cursor;
+    }
+
+    // In-order walk with an int stack of pending node indices, optionally
+    // stopping at the upper bound `to`
+    private class Cursor implements Iterator<T> {
+        private int[] stack = new int[Math.max(height[root], 1)];
+        private int depth = 0;
+        private final int expectedModCount = modCount;
+        private T to;
+        private boolean toInclusive;
+
+        private void push(int node) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = node;
+        }
+
+        private void pushLeft(int node) {
+            while (node != NIL) {
+                push(node);
+                node = left[node];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (depth == 0) {
+                return false;
+            }
+            if (to == null) {
+                return true;
+            }
+            int comparison = value(stack[depth - 1]).compareTo(to);
+            return comparison < 0 || (comparison == 0 && toInclusive);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            int node = stack[--depth];
+            pushLeft(right[node]);
+            return value(node);
+        }
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+}
@@ -0,0 +1,841 @@
+package selfbalance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+// B+-tree whose nodes are fixed-size pages of a file, for key sets larger than
+// memory. A node holds as many keys as fit in a page, so a lookup reads a
+// handful of pages where a binary tree would touch one random location per
+// level. Keys live in the leaves, which are chained left to right for scans;
+// internal nodes hold separators, each <= every key in the subtree to its
+// right and > every key in the subtree to its left.
+//
+// Page 0 is the meta page: int magic, byte version, byte codec id, int page
+// size, long root, int height, int size, long page count, long free list head.
+// A node page is byte type, int key count, long next leaf (or next free page),
+// then the keys as int length plus codec bytes; internal nodes put a long
+// child page before the first key and after every key.
+//
+// Pages are read through an LRU cache of decoded nodes bounded by the cache
+// budget. Evicting a dirty page writes it back, and eviction only happens
+// between operations so the pages along the current path stay put. Nodes
+// split when their encoded size outgrows a page and merge with or borrow from
+// a sibling when they fall below a quarter of one. The file is consistent on
+// disk after flush() or close(); there is no log, so a crash in between can
+// lose or tear the pages written since. All operations are synchronized.
+public class BPlusTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T>, Closeable {
+    private static final int MAGIC = 0x53425442; // "SBTB"
+    private static final byte VERSION = 1;
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final byte FREE = 3;
+    private static final int NODE_HEADER = 1 + Integer.BYTES + Long.BYTES; // type, key count, next
+    private static final int META_BYTES = 2 * Integer.BYTES + 2 + Long.BYTES + 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final long NONE = 0; // The meta page, so never a node
+    private static final int MIN_PAGE_SIZE = 256;
+    private static final int MIN_CACHE_PAGES = 16;
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    private final FileChannel channel;
+    private final KeyCodec<T> codec;
+    private final int pageSize;
+    private final int minBytes;
+    private final int maxKeyBytes;
+    private final int bulkFillBytes;
+    private final int cachePages;
+    private final ByteBuffer buffer;
+    private final LinkedHashMap<Long, Page> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long root;
+    private int height;
+    private int size;
+    private long pageCount;
+    private long freeList = NONE;
+    private int modCount = 0;
+
+    // One node, decoded. bytes is its encoded size, kept up to date by every
+    // change so overflow and underflow are checked without re-encoding
+    private final class Page {
+        final long id;
+        byte type;
+        final ArrayList<T> keys = new ArrayList<>();
+        final ArrayList<Long> children = new ArrayList<>();
+        long next = NONE;
+        int bytes;
+        boolean dirty;
+
+        Page(long id, byte type) {
+            this.id = id;
+            this.type = type;
+            this.bytes = header(type);
+        }
+
+        boolean isLeaf() {
+            return type == LEAF;
+        }
+    }
+
+    public BPlusTree(Path file, KeyCodec<T> codec) throws IOException {
+        this(file, codec, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_BYTES);
+    }
+
+    // An existing file keeps the page size it was created with
+    public BPlusTree(Path file, KeyCodec<T> codec, int pageSize, long cacheBytes) throws IOException {
+        if (pageSize < MIN_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be at least " + MIN_PAGE_SIZE + ": " + pageSize);
+        }
+        this.codec = codec;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > 0) {
+                ByteBuffer meta = ByteBuffer.allocate(META_BYTES);
+                readFully(meta, 0);
+                meta.flip();
+                if (meta.getInt() != MAGIC) {
+                    throw new IOException("Not a B+-tree file: " + file);
+                }
+                byte version = meta.get();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported B+-tree version " + version + ": " + file);
+                }
+                byte codecId = meta.get();
+                if (codecId != codec.id()) {
+                    throw new IOException("B+-tree keys use codec " + codecId + ", not " + codec.id() + ": " + file);
+                }
+                pageSize = meta.getInt();
+                root = meta.getLong();
+                height = meta.getInt();
+                size = meta.getInt();
+                pageCount = meta.getLong();
+                freeList = meta.getLong();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.pageSize = pageSize;
+        this.minBytes = pageSize / 4;
+        // A quarter of the payload, so an overflowing node has enough keys to
+        // split and two siblings that do not fit in one page can share evenly
+        this.maxKeyBytes = (pageSize - NODE_HEADER - Long.BYTES) / 4 - Integer.BYTES - Long.BYTES;
+        this.bulkFillBytes = pageSize - pageSize / 10;
+        this.cachePages = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CACHE_PAGES, cacheBytes / pageSize));
+        this.buffer = ByteBuffer.allocate(pageSize);
+        if (channel.size() == 0) {
+            pageCount = 1;
+            root = allocate(LEAF).id;
+            height = 1;
+            flush();
+        }
+    }
+
+    private static int header(byte type) {
+        return type == INTERNAL ? NODE_HEADER + Long.BYTES : NODE_HEADER;
+    }
+
+    private int entryBytes(byte type, T key) {
+        return Integer.BYTES + codec.encode(key).length + (type == INTERNAL ? Long.BYTES : 0);
+    }
+
+    private void checkKey(T key) {
+        int length = codec.encode(key).length;
+        if (length > maxKeyBytes) {
+            throw new IllegalArgumentException("Key of " + length + " bytes exceeds the limit of " + maxKeyBytes
+                    + " for " + pageSize + " byte pages");
+        }
+    }
+
+    private Page fetch(long id) {
+        Page page = cache.get(id);
+        if (page == null) {
+            page = read(id);
+            cache.put(id, page);
+        }
+        return page;
+    }
+
+    private Page read(long id) {
+        try {
+            buffer.clear();
+            readFully(buffer, id * pageSize);
+            buffer.flip();
+            Page page = new Page(id, buffer.get());
+            int count = buffer.getInt();
+            page.next = buffer.getLong();
+            if (page.type == INTERNAL) {
+                page.children.add(buffer.getLong());
+            }
+            page.keys.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                page.keys.add(codec.decode(buffer, length));
+                if (page.type == INTERNAL) {
+                    page.children.add(buffer.getLong());
+                }
+            }
+            page.bytes = buffer.position();
+            return page;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read page " + id, e);
+        }
+    }
+
+    private void write(Page page) {
+        buffer.clear();
+        buffer.put(page.type).putInt(page.keys.size()).putLong(page.next);
+        if (page.type == INTERNAL) {
+            buffer.putLong(page.children.get(0));
+        }
+        for (int i = 0; i < page.keys.size(); i++) {
+            byte[] bytes = codec.encode(page.keys.get(i));
+            buffer.putInt(bytes.length).put(bytes);
+            if (page.type == INTERNAL) {
+                buffer.putLong(page.children.get(i + 1));
+            }
+        }
+        // Whole pages, so the file never ends in a partial one
+        buffer.position(pageSize).flip();
+        try {
+            long offset = page.id * pageSize;
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write page " + page.id, e);
+        }
+        page.dirty = false;
+    }
+
+    private void readFully(ByteBuffer target, long offset) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, offset);
+            if (read < 0) {
+                throw new IOException("B+-tree file ends inside page " + offset / pageSize);
+            }
+            offset += read;
+        }
+    }
+
+    // Reuses a page from the free list before growing the file
+    private Page allocate(byte type) {
+        Page page;
+        if (freeList != NONE) {
+            page = fetch(freeList);
+            freeList = page.next;
+            page.keys.clear();
+            page.children.clear();
+            page.next = NONE;
+            page.type = type;
+            page.bytes = header(type);
+        } else {
+            page = new Page(pageCount++, type);
+            cache.put(page.id, page);
+        }
+        page.dirty = true;
+        return page;
+    }
+
+    private void free(Page page) {
+        page.type = FREE;
+        page.keys.clear();
+        page.children.clear();
+        page.next = freeList;
+        page.bytes = NODE_HEADER;
+        page.dirty = true;
+        freeList = page.id;
+    }
+
+    // Brings the cache back within budget, least recently used pages first.
+    // Called at the end of every operation, never in the middle of one
+    private void evict() {
+        Iterator<Page> pages = cache.values().iterator();
+        while (cache.size() > cachePages) {
+            Page page = pages.next();
+            if (page.dirty) {
+                write(page);
+            }
+            pages.remove();
+        }
+    }
+
+    // Writes every dirty page and the meta page, then forces them to disk
+    public synchronized void flush() throws IOException {
+        try {
+            for (Page page : cache.values()) {
+                if (page.dirty) {
+                    write(page);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeMeta();
+        channel.force(true);
+    }
+
+    private void writeMeta() throws IOException {
+        ByteBuffer meta = ByteBuffer.allocate(META_BYTES);
+        meta.putInt(MAGIC).put(VERSION).put(codec.id()).putInt(pageSize).putLong(root).putInt(height).putInt(size)
+                .putLong(pageCount).putLong(freeList);
+        meta.flip();
+        long offset = 0;
+        while (meta.hasRemaining()) {
+            offset += channel.write(meta, offset);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Child to follow for key: separators equal to it lead right
+    private int childIndex(Page page, T key) {
+        int index = Collections.binarySearch(page.keys, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Page leafFor(T key) {
+        Page page = fetch(root);
+        while (!page.isLeaf()) {
+            page = fetch(page.children.get(childIndex(page, key)));
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized boolean search(T value) {
+        try {
+            return Collections.binarySearch(leafFor(value).keys, value) >= 0;
+        } finally {
+            evict();
+        }
+    }
+
+    @Override
+    public synchronized boolean insert(T value) {
+        checkKey(value);
+        try {
+            if (!insert(fetch(root), value)) {
+                return false;
+            }
+            size++;
+            modCount++;
+            fixRoot();
+            return true;
+        } finally {
+            evict();
+        }
+    }
+
+    private boolean insert(Page page, T value) {
+        if (page.isLeaf()) {
+            int index = Collections.binarySearch(page.keys, value);
+            if (index >= 0) {
+                return false;
+            }
+            page.keys.add(-index - 1, value);
+            page.bytes += entryBytes(LEAF, value);
+            page.dirty = true;
+            return true;
+        }
+        int index = childIndex(page, value);
+        Page child = fetch(page.children.get(index));
+        if (!insert(child, value)) {
+            return false;
+        }
+        if (child.bytes > pageSize) {
+            split(page, index, child);
+        }
+        return true;
+    }
+
+    // Moves the upper half of an overflowing child into a new right sibling
+    private void split(Page parent, int index, Page child) {
+        Page right = allocate(child.type);
+        List<T> keys = new ArrayList<>(child.keys);
+        List<Long> children = new ArrayList<>(child.children);
+        if (child.isLeaf()) {
+            right.next = child.next;
+            child.next = right.id;
+        }
+        T separator = distribute(child, right, keys, children);
+        parent.keys.add(index, separator);
+        parent.children.add(index + 1, right.id);
+        parent.bytes += entryBytes(INTERNAL, separator);
+        parent.dirty = true;
+    }
+
+    // Deals the keys (and, for internal nodes, children) of two siblings out
+    // so both hold about the same number of bytes, and returns the separator
+    // that goes between them. Leaves copy the separator up; internal nodes
+    // give up the middle key to the parent
+    private T distribute(Page left, Page right, List<T> keys, List<Long> children) {
+        boolean leaf = left.isLeaf();
+        int count = keys.size();
+        int[] sizes = new int[count];
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            sizes[i] = entryBytes(left.type, keys.get(i));
+            total += sizes[i];
+        }
+        int split = 0;
+        int leftBytes = 0;
+        while (split < count - 1 && leftBytes + sizes[split] <= total / 2) {
+            leftBytes += sizes[split++];
+        }
+        split = Math.max(split, 1);
+        if (!leaf) {
+            split = Math.min(split, count - 2);
+        }
+        T separator = keys.get(split);
+        int rightFrom = leaf ? split : split + 1;
+        left.keys.clear();
+        left.keys.addAll(keys.subList(0, split));
+        right.keys.clear();
+        right.keys.addAll(keys.subList(rightFrom, count));
+        if (!leaf) {
+            left.children.clear();
+            left.children.addAll(children.subList(0, split + 1));
+            right.children.clear();
+            right.children.addAll(children.subList(split + 1, count + 1));
+        }
+        measure(left);
+        measure(right);
+        return separator;
+    }
+
+    private void measure(Page page) {
+        int bytes = header(page.type);
+        for (T key : page.keys) {
+            bytes += entryBytes(page.type, key);
+        }
+        page.bytes = bytes;
+        page.dirty = true;
+    }
+
+    // Splits a root that outgrew its page, or drops an internal root that is
+    // down to a single child
+    private void fixRoot() {
+        Page page = fetch(root);
+        if (page.bytes > pageSize) {
+            Page parent = allocate(INTERNAL);
+            parent.children.add(page.id);
+            split(parent, 0, page);
+            root = parent.id;
+            height++;
+        } else if (!page.isLeaf() && page.keys.isEmpty()) {
+            root = page.children.get(0);
+            free(page);
+            height--;
+        }
+    }
+
+    @Override
+    public synchronized boolean delete(T value) {
+        try {
+            if (!delete(fetch(root), value)) {
+                return false;
+            }
+            size--;
+            modCount++;
+            fixRoot();
+            return true;
+        } finally {
+            evict();
+        }
+    }
+
+    private boolean delete(Page page, T value) {
+        if (page.isLeaf()) {
+            int index = Collections.binarySearch(page.keys, value);
+            if (index < 0) {
+                return false;
+            }
+            page.keys.remove(index);
+            page.bytes -= entryBytes(LEAF, value);
+            page.dirty = true;
+            return true;
+        }
+        int index = childIndex(page, value);
+        Page child = fetch(page.children.get(index));
+        if (!delete(child, value)) {
+            return false;
+        }
+        // A longer separator coming up from below can overflow the child
+        if (child.bytes > pageSize) {
+            split(page, index, child);
+        } else if (child.bytes < minBytes) {
+            merge(page, index);
+        }
+        return true;
+    }
+
+    // Merges an underfull child with a neighbour when the two fit in one page,
+    // otherwise evens out the bytes between them
+    private void merge(Page parent, int index) {
+        int at = index > 0 ? index - 1 : index; // Separator between the pair
+        Page left = fetch(parent.children.get(at));
+        Page right = fetch(parent.children.get(at + 1));
+        T separator = parent.keys.get(at);
+        List<T> keys = new ArrayList<>(left.keys);
+        List<Long> children = new ArrayList<>(left.children);
+        int bytes = left.bytes + right.bytes - header(left.type);
+        if (!left.isLeaf()) {
+            keys.add(separator);
+            bytes += entryBytes(INTERNAL, separator);
+        }
+        keys.addAll(right.keys);
+        children.addAll(right.children);
+        if (bytes <= pageSize) {
+            left.keys.clear();
+            left.keys.addAll(keys);
+            left.children.clear();
+            left.children.addAll(children);
+            left.next = right.next;
+            measure(left);
+            parent.keys.remove(at);
+            parent.children.remove(at + 1);
+            free(right);
+        } else {
+            parent.keys.set(at, distribute(left, right, keys, children));
+        }
+        measure(parent);
+    }
+
+    // Rebuilds the file bottom-up: leaves are written in key order, each
+    // filled to about 90% so a few inserts do not split every one of them,
+    // then each level of internal nodes over the one below
+    @Override
+    public synchronized void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        for (T key : keys) {
+            checkKey(key);
+        }
+        modCount++;
+        cache.clear();
+        try {
+            channel.truncate(pageSize);
+            pageCount = 1;
+            freeList = NONE;
+            size = keys.length;
+            height = 1;
+            List<T> lows = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            Page leaf = new Page(pageCount++, LEAF);
+            ids.add(leaf.id);
+            for (T key : keys) {
+                int entry = entryBytes(LEAF, key);
+                if (!leaf.keys.isEmpty() && leaf.bytes + entry > bulkFillBytes) {
+                    leaf.next = pageCount;
+                    write(leaf);
+                    leaf = new Page(pageCount++, LEAF);
+                    ids.add(leaf.id);
+                }
+                if (leaf.keys.isEmpty()) {
+                    lows.add(key);
+                }
+                leaf.keys.add(key);
+                leaf.bytes += entry;
+            }
+            write(leaf);
+            while (ids.size() > 1) {
+                buildLevel(lows, ids);
+                height++;
+            }
+            root = ids.get(0);
+            writeMeta();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rebuild B+-tree", e);
+        }
+    }
+
+    // Groups the nodes of one level under new parents, leaving their pages
+    // and lowest keys in ids and lows for the next round
+    private void buildLevel(List<T> lows, List<Long> ids) {
+        List<Integer> starts = new ArrayList<>();
+        int bytes = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int entry = entryBytes(INTERNAL, lows.get(i));
+            if (i == 0 || bytes + entry > bulkFillBytes) {
+                starts.add(i);
+                bytes = header(INTERNAL);
+            } else {
+                bytes += entry;
+            }
+        }
+        // Every internal node needs two children; borrow one for the last
+        int last = starts.size() - 1;
+        if (last > 0 && starts.get(last) == ids.size() - 1) {
+            starts.set(last, starts.get(last) - 1);
+        }
+        starts.add(ids.size());
+        List<T> parentLows = new ArrayList<>();
+        List<Long> parentIds = new ArrayList<>();
+        for (int s = 0; s + 1 < starts.size(); s++) {
+            Page parent = new Page(pageCount++, INTERNAL);
+            int from = starts.get(s);
+            int to = starts.get(s + 1);
+            parent.children.add(ids.get(from));
+            for (int i = from + 1; i < to; i++) {
+                parent.keys.add(lows.get(i));
+                parent.children.add(ids.get(i));
+            }
+            write(parent);
+            parentLows.add(lows.get(from));
+            parentIds.add(parent.id);
+        }
+        lows.clear();
+        lows.addAll(parentLows);
+        ids.clear();
+        ids.addAll(parentIds);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized int getHeight() {
+        return size == 0 ? 0 : height;
+    }
+
+    @Override
+    public synchronized T first() {
+        return ceiling(null, true);
+    }
+
+    @Override
+    public synchronized T last() {
+        try {
+            Page page = fetch(root);
+            while (!page.isLeaf()) {
+                page = fetch(page.children.get(page.children.size() - 1));
+            }
+            return page.keys.isEmpty() ? null : page.keys.get(page.keys.size() - 1);
+        } finally {
+            evict();
+        }
+    }
+
+    @Override
+    public synchronized T floor(T value) {
+        return floor(value, true);
+    }
+
+    @Override
+    public synchronized T lower(T value) {
+        return floor(value, false);
+    }
+
+    @Override
+    public synchronized T ceiling(T value) {
+        return ceiling(value, true);
+    }
+
+    @Override
+    public synchronized T higher(T value) {
+        return ceiling(value, false);
+    }
+
+    private T ceiling(T value, boolean inclusive) {
+        Cursor cursor = cursor(value, inclusive);
+        return cursor.hasNext() ? cursor.next() : null;
+    }
+
+    // If value's leaf has no key below it, the answer is the largest key of
+    // the nearest subtree to the left of the descent path
+    private T floor(T value, boolean inclusive) {
+        try {
+            Page page = fetch(root);
+            long left = NONE;
+            while (!page.isLeaf()) {
+                int index = childIndex(page, value);
+                if (index > 0) {
+                    left = page.children.get(index - 1);
+                }
+                page = fetch(page.children.get(index));
+            }
+            int index = Collections.binarySearch(page.keys, value);
+            index = index >= 0 ? (inclusive ? index : index - 1) : -index - 2;
+            if (index >= 0) {
+                return page.keys.get(index);
+            }
+            if (left == NONE) {
+                return null;
+            }
+            page = fetch(left);
+            while (!page.isLeaf()) {
+                page = fetch(page.children.get(page.children.size() - 1));
+            }
+            return page.keys.get(page.keys.size() - 1);
+        } finally {
+            evict();
+        }
+    }
+
+    @Override
+    public synchronized Iterator<T> iterator() {
+        return cursor(null, true);
+    }
+
+    @Override
+    public synchronized Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        Cursor cursor = cursor(from, fromInclusive);
+        cursor.to = to;
+        cursor.toInclusive = toInclusive;
+        return cursor;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), getSize(), Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    // Cursor at the first key after from (the first key overall if from is null)
+    private Cursor cursor(T from, boolean inclusive) {
+        try {
+            Page page = fetch(root);
+            while (!page.isLeaf()) {
+                page = fetch(page.children.get(from == null ? 0 : childIndex(page, from)));
+            }
+            int index = 0;
+            if (from != null) {
+                index = Collections.binarySearch(page.keys, from);
+                index = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+            }
+            return new Cursor(page, index);
+        } finally {
+            evict();
+        }
+    }
+
+    // Walks the leaf chain, holding one leaf's keys at a time; the next leaf
+    // is fetched under the tree's lock, so a scan reads each page once
+    private final class Cursor implements Iterator<T> {
+        private List<T> keys;
+        private int index;
+        private long next;
+        private final int expectedModCount = modCount;
+        private T to;
+        private boolean toInclusive;
+
+        Cursor(Page leaf, int index) {
+            this.keys = leaf.keys;
+            this.index = index;
+            this.next = leaf.next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == keys.size()) {
+                if (next == NONE) {
+                    return false;
+                }
+                advance();
+            }
+            if (to == null) {
+                return true;
+            }
+            int comparison = keys.get(index).compareTo(to);
+            return comparison < 0 || (comparison == 0 && toInclusive);
+        }
+
+        private void advance() {
+            synchronized (BPlusTree.this) {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                try {
+                    Page leaf = fetch(next);
+                    keys = leaf.keys;
+                    next = leaf.next;
+                    index = 0;
+                } finally {
+                    evict();
+                }
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return keys.get(index++);
+        }
+    }
+
+    @Override
+    public void traverseInOrder() {
+        for (T key : this) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+
+    // Pre- and post-order print each node's keys as one bracketed group
+    @Override
+    public synchronized void traversePreOrder() {
+        try {
+            traverse(root, true);
+        } finally {
+            evict();
+        }
+        System.out.println();
+    }
+
+    @Override
+    public synchronized void traversePostOrder() {
+        try {
+            traverse(root, false);
+        } finally {
+            evict();
+        }
+        System.out.println();
+    }
+
+    // Read-only, so pages can be evicted along the way; the walk keeps its
+    // own references to the keys and children it still needs
+    private void traverse(long id, boolean pre) {
+        Page page = fetch(id);
+        List<T> keys = page.keys;
+        List<Long> children = new ArrayList<>(page.children);
+        evict();
+        if (pre) {
+            System.out.print(keys + " ");
+        }
+        for (long child : children) {
+            traverse(child, pre);
+        }
+        if (!pre) {
+            System.out.print(keys + " ");
+        }
+    }
+}
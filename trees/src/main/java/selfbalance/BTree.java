@@ -0,0 +1,529 @@
+package selfbalance;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+// In-memory B-tree: each node keeps up to order - 1 keys in one array and
+// order children in another, so a search crosses about log_order(n) nodes
+// instead of log2(n) and binary-searches a contiguous array inside each one.
+// At ten million keys that is four or five levels rather than the twenty-odd
+// of the binary trees, and most of the comparisons within a node touch the
+// key array's cache lines rather than fresh node objects.
+//
+// Every node but the root holds between ceil(order / 2) - 1 and order - 1
+// keys, and all leaves are at the same depth. Writes are single descents that
+// fix things up on the way back: an insert that overfills a node splits it
+// around its median, and a delete that leaves a node short borrows a key from
+// a sibling through the parent or merges with it.
+public class BTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
+    public static final int DEFAULT_ORDER = 64;
+
+    private final int order;
+    private final int maxKeys;
+    private final int minKeys;
+    private Node<T> root = null; // null when empty
+    private int height = 0;
+    private int size = 0;
+    private int modCount = 0; // Structural changes, for fail-fast iterators
+
+    // Arrays have one spare slot so a node can overflow by a key before its
+    // parent splits it
+    private static final class Node<T extends Comparable<T>> {
+        final T[] keys;
+        final Node<T>[] children; // null in leaves
+        int count;
+
+        Node(int maxKeys, boolean leaf) {
+            keys = SortedKeys.newArray(maxKeys + 1);
+            children = leaf ? null : newNodes(maxKeys + 2);
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> Node<T>[] newNodes(int length) {
+        return (Node<T>[]) new Node<?>[length];
+    }
+
+    public BTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    public BTree(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("B-tree order must be at least 3: " + order);
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.minKeys = (order + 1) / 2 - 1;
+    }
+
+    // Index of value among the node's keys, or -(insertion point) - 1
+    private static <T extends Comparable<T>> int find(Node<T> node, T value) {
+        int lo = 0;
+        int hi = node.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int comparison = node.keys[mid].compareTo(value);
+            if (comparison < 0) {
+                lo = mid + 1;
+            } else if (comparison > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -lo - 1;
+    }
+
+    @Override
+    public boolean search(T value) {
+        Node<T> node = root;
+        while (node != null) {
+            int index = find(node, value);
+            if (index >= 0) {
+                return true;
+            }
+            node = node.isLeaf() ? null : node.children[-index - 1];
+        }
+        return false;
+    }
+
+    @Override
+    public boolean insert(T value) {
+        if (root == null) {
+            root = new Node<>(maxKeys, true);
+            height = 1;
+        }
+        if (!insert(root, value)) {
+            return false;
+        }
+        if (root.count > maxKeys) {
+            Node<T> parent = new Node<>(maxKeys, false);
+            parent.children[0] = root;
+            split(parent, 0);
+            root = parent;
+            height++;
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    private boolean insert(Node<T> node, T value) {
+        int index = find(node, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (node.isLeaf()) {
+            System.arraycopy(node.keys, index, node.keys, index + 1, node.count - index);
+            node.keys[index] = value;
+            node.count++;
+            return true;
+        }
+        Node<T> child = node.children[index];
+        if (!insert(child, value)) {
+            return false;
+        }
+        if (child.count > maxKeys) {
+            split(node, index);
+        }
+        return true;
+    }
+
+    // Splits the overfull child at index around its median, which moves up
+    // into the parent
+    private void split(Node<T> parent, int index) {
+        Node<T> child = parent.children[index];
+        int median = child.count / 2;
+        Node<T> right = new Node<>(maxKeys, child.isLeaf());
+        right.count = child.count - median - 1;
+        System.arraycopy(child.keys, median + 1, right.keys, 0, right.count);
+        if (!child.isLeaf()) {
+            System.arraycopy(child.children, median + 1, right.children, 0, right.count + 1);
+            Arrays.fill(child.children, median + 1, child.count + 1, null);
+        }
+        T separator = child.keys[median];
+        Arrays.fill(child.keys, median, child.count, null);
+        child.count = median;
+
+        System.arraycopy(parent.keys, index, parent.keys, index + 1, parent.count - index);
+        System.arraycopy(parent.children, index + 1, parent.children, index + 2, parent.count - index);
+        parent.keys[index] = separator;
+        parent.children[index + 1] = right;
+        parent.count++;
+    }
+
+    @Override
+    public boolean delete(T value) {
+        if (root == null || !delete(root, value)) {
+            return false;
+        }
+        if (root.count == 0) {
+            root = root.isLeaf() ? null : root.children[0];
+            height--;
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    private boolean delete(Node<T> node, T value) {
+        int index = find(node, value);
+        if (node.isLeaf()) {
+            if (index < 0) {
+                return false;
+            }
+            node.count--;
+            System.arraycopy(node.keys, index + 1, node.keys, index, node.count - index);
+            node.keys[node.count] = null;
+            return true;
+        }
+        if (index >= 0) {
+            // Replace the key by its predecessor, then delete that from the
+            // left subtree, where it sits in a leaf
+            Node<T> leaf = node.children[index];
+            while (!leaf.isLeaf()) {
+                leaf = leaf.children[leaf.count];
+            }
+            T predecessor = leaf.keys[leaf.count - 1];
+            node.keys[index] = predecessor;
+            delete(node.children[index], predecessor);
+        } else {
+            index = -index - 1;
+            if (!delete(node.children[index], value)) {
+                return false;
+            }
+        }
+        if (node.children[index].count < minKeys) {
+            refill(node, index);
+        }
+        return true;
+    }
+
+    // Tops up the child at index, which is one key short: borrows through the
+    // parent from a sibling that can spare one, else merges with a sibling
+    private void refill(Node<T> parent, int index) {
+        Node<T> child = parent.children[index];
+        if (index > 0 && parent.children[index - 1].count > minKeys) {
+            Node<T> left = parent.children[index - 1];
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            child.keys[0] = parent.keys[index - 1];
+            parent.keys[index - 1] = left.keys[left.count - 1];
+            left.keys[left.count - 1] = null;
+            if (!child.isLeaf()) {
+                System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+                child.children[0] = left.children[left.count];
+                left.children[left.count] = null;
+            }
+            left.count--;
+            child.count++;
+        } else if (index < parent.count && parent.children[index + 1].count > minKeys) {
+            Node<T> right = parent.children[index + 1];
+            child.keys[child.count] = parent.keys[index];
+            parent.keys[index] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            right.keys[right.count - 1] = null;
+            if (!child.isLeaf()) {
+                child.children[child.count + 1] = right.children[0];
+                System.arraycopy(right.children, 1, right.children, 0, right.count);
+                right.children[right.count] = null;
+            }
+            right.count--;
+            child.count++;
+        } else {
+            merge(parent, index > 0 ? index - 1 : index);
+        }
+    }
+
+    // Folds the child right of the separator at index, and the separator
+    // itself, into the child left of it
+    private void merge(Node<T> parent, int index) {
+        Node<T> left = parent.children[index];
+        Node<T> right = parent.children[index + 1];
+        left.keys[left.count] = parent.keys[index];
+        System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+        if (!left.isLeaf()) {
+            System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+        }
+        left.count += right.count + 1;
+
+        parent.count--;
+        System.arraycopy(parent.keys, index + 1, parent.keys, index, parent.count - index);
+        System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.count - index);
+        parent.keys[parent.count] = null;
+        parent.children[parent.count + 1] = null;
+    }
+
+    // Builds the tree at the lowest height that can hold the keys, dealing
+    // them out evenly so every node starts at least half full
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        modCount++;
+        size = keys.length;
+        if (keys.length == 0) {
+            root = null;
+            height = 0;
+            return;
+        }
+        // capacity[h] is the most keys a subtree of height h can hold
+        long[] capacity = new long[2];
+        capacity[1] = maxKeys;
+        while (capacity[capacity.length - 1] < keys.length) {
+            capacity = Arrays.copyOf(capacity, capacity.length + 1);
+            capacity[capacity.length - 1] = (capacity[capacity.length - 2] + 1) * order - 1;
+        }
+        height = capacity.length - 1;
+        root = build(keys, 0, keys.length, height, capacity);
+    }
+
+    private Node<T> build(T[] keys, int from, int to, int height, long[] capacity) {
+        int count = to - from;
+        if (height == 1) {
+            Node<T> leaf = new Node<>(maxKeys, true);
+            System.arraycopy(keys, from, leaf.keys, 0, count);
+            leaf.count = count;
+            return leaf;
+        }
+        long perChild = capacity[height - 1] + 1;
+        int children = (int) Math.max(2, (count + perChild) / perChild);
+        int spread = count - (children - 1);
+        Node<T> node = new Node<>(maxKeys, false);
+        int next = from;
+        for (int i = 0; i < children; i++) {
+            int childCount = spread / children + (i < spread % children ? 1 : 0);
+            node.children[i] = build(keys, next, next + childCount, height - 1, capacity);
+            next += childCount;
+            if (i < children - 1) {
+                node.keys[i] = keys[next++];
+            }
+        }
+        node.count = children - 1;
+        return node;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public T first() {
+        Node<T> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (!node.isLeaf()) {
+            node = node.children[0];
+        }
+        return node.keys[0];
+    }
+
+    @Override
+    public T last() {
+        Node<T> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (!node.isLeaf()) {
+            node = node.children[node.count];
+        }
+        return node.keys[node.count - 1];
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    // Largest key below value (or equal, if inclusive): the last qualifying
+    // key of each node on the way down, the deepest one winning
+    private T below(T value, boolean inclusive) {
+        T best = null;
+        Node<T> node = root;
+        while (node != null) {
+            int index = find(node, value);
+            if (index >= 0 && inclusive) {
+                return node.keys[index];
+            }
+            int child = index >= 0 ? index : -index - 1;
+            if (child > 0) {
+                best = node.keys[child - 1];
+            }
+            node = node.isLeaf() ? null : node.children[child];
+        }
+        return best;
+    }
+
+    private T above(T value, boolean inclusive) {
+        T best = null;
+        Node<T> node = root;
+        while (node != null) {
+            int index = find(node, value);
+            if (index >= 0 && inclusive) {
+                return node.keys[index];
+            }
+            int child = index >= 0 ? index + 1 : -index - 1;
+            if (child < node.count) {
+                best = node.keys[child];
+            }
+            node = node.isLeaf() ? null : node.children[child];
+        }
+        return best;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Cursor cursor = new Cursor();
+        cursor.pushLeft(root);
+        return cursor;
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        Cursor cursor = new Cursor();
+        cursor.to = to;
+        cursor.toInclusive = toInclusive;
+        Node<T> node = root;
+        while (node != null) {
+            int index = find(node, from);
+            int next = index >= 0 ? (fromInclusive ? index : index + 1) : -index - 1;
+            if (next < node.count) {
+                cursor.push(node, next);
+            }
+            if (index >= 0 && fromInclusive || node.isLeaf()) {
+                break;
+            }
+            node = node.children[index >= 0 ? index + 1 : next];
+        }
+        return cursor;
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    // In-order walk with a stack of (node, index of its next key) frames, one
+    // per level at most; a frame is dropped once its last key is handed out
+    private class Cursor implements Iterator<T> {
+        private final Node<T>[] nodes = newNodes(Math.max(height, 1));
+        private final int[] indices = new int[nodes.length];
+        private int depth = 0;
+        private final int expectedModCount = modCount;
+        private T to;
+        private boolean toInclusive;
+
+        private void push(Node<T> node, int index) {
+            nodes[depth] = node;
+            indices[depth++] = index;
+        }
+
+        private void pushLeft(Node<T> node) {
+            while (node != null) {
+                push(node, 0);
+                node = node.isLeaf() ? null : node.children[0];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (depth == 0) {
+                return false;
+            }
+            if (to == null) {
+                return true;
+            }
+            int comparison = nodes[depth - 1].keys[indices[depth - 1]].compareTo(to);
+            return comparison < 0 || (comparison == 0 && toInclusive);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            Node<T> node = nodes[depth - 1];
+            int index = indices[depth - 1]++;
+            if (index + 1 == node.count) {
+                depth--;
+            }
+            if (!node.isLeaf()) {
+                pushLeft(node.children[index + 1]);
+            }
+            return node.keys[index];
+        }
+    }
+
+    @Override
+    public void traverseInOrder() {
+        for (T key : this) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+
+    // Pre- and post-order print each node's keys as one bracketed group
+    @Override
+    public void traversePreOrder() {
+        traverse(root, true);
+        System.out.println();
+    }
+
+    @Override
+    public void traversePostOrder() {
+        traverse(root, false);
+        System.out.println();
+    }
+
+    private void traverse(Node<T> node, boolean pre) {
+        if (node == null) {
+            return;
+        }
+        String keys = Arrays.toString(Arrays.copyOf(node.keys, node.count));
+        if (pre) {
+            System.out.print(keys + " ");
+        }
+        if (!node.isLeaf()) {
+            for (int i = 0; i <= node.count; i++) {
+                traverse(node.children[i], pre);
+            }
+        }
+        if (!pre) {
+            System.out.print(keys + " ");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package selfbalance;
+
+// Outcome of a batch operation: how many keys changed the tree (or were found)
+// and how many were skipped (already present, missing or repeated in the batch)
+public final class BatchResult {
+    private final int applied;
+    private final int skipped;
+
+    public BatchResult(int applied, int skipped) {
+        this.applied = applied;
+        this.skipped = skipped;
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "applied=" + applied + ", skipped=" + skipped;
+    }
+}
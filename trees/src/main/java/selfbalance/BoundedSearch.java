@@ -0,0 +1,17 @@
+package selfbalance;
+
+// Trees whose search can stop after a given number of levels. An optimistic
+// reader (see ConcurrentSelfBalanceTree) walks nodes a writer may be rotating
+// in place and can meet a transient cycle; the bound turns that walk into a
+// retry under the read lock instead of a loop that never ends.
+interface BoundedSearch<T> {
+    // Returned by searchWithin when the descent took more than maxSteps
+    int GAVE_UP = Integer.MIN_VALUE;
+
+    // The number of nodes compared if value is present, minus that number if
+    // it is not, or GAVE_UP. Records no metrics, as the caller may discard
+    // the result; it passes the count of the one it keeps to recordSearch
+    int searchWithin(T value, int maxSteps);
+
+    void recordSearch(int comparisons);
+}
@@ -0,0 +1,228 @@
+package selfbalance;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Thread-safe decorator for any SelfBalanceTreeInterface. Writes take the
+// exclusive StampedLock, reads share the read lock, with two optimistic
+// exceptions: getSize() and, for delegates that implement BoundedSearch,
+// search(). Those run without locking and keep the result only if no write
+// happened meanwhile. A search that races a writer may follow links of a
+// half-rotated tree, even round a cycle, or hand compareTo a key being
+// rewritten, so its descent is capped at a few times the tree height and
+// retried under the read lock when the cap or the validation fails or the
+// walk throws. Only the attempt whose result is returned counts in metrics. The other queries walk the delegate with no such bound,
+// so they never read optimistically. Iteration works on a snapshot copied
+// under the read lock, so iterators never see concurrent changes; the
+// traversals print under the read lock.
+public class ConcurrentSelfBalanceTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
+    private final SelfBalanceTreeInterface<T> delegate;
+    private final BoundedSearch<T> bounded; // The delegate, if it supports it
+    private final StampedLock lock = new StampedLock();
+
+    public ConcurrentSelfBalanceTree(SelfBalanceTreeInterface<T> delegate) {
+        this.delegate = delegate;
+        this.bounded = boundedSearch(delegate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> BoundedSearch<T> boundedSearch(Object delegate) {
+        return delegate instanceof BoundedSearch ? (BoundedSearch<T>) delegate : null;
+    }
+
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Supplier<R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean search(T value) {
+        // Written out rather than through read() to keep the hot path lambda-free
+        if (bounded != null) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    // A consistent descent visits at most getHeight() nodes
+                    int found = bounded.searchWithin(value, 2 * delegate.getHeight() + 2);
+                    if (found != BoundedSearch.GAVE_UP && lock.validate(stamp)) {
+                        bounded.recordSearch(Math.abs(found));
+                        return found > 0;
+                    }
+                } catch (RuntimeException e) {
+                    // Read a key or link mid-write, retry locked
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return delegate.search(value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        long stamp = lock.tryOptimisticRead();
+        int size = delegate.getSize();
+        if (lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return delegate.getSize();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int getHeight() {
+        return read(delegate::getHeight);
+    }
+
+    @Override
+    public T first() {
+        return read(delegate::first);
+    }
+
+    @Override
+    public T last() {
+        return read(delegate::last);
+    }
+
+    @Override
+    public T floor(T value) {
+        return read(() -> delegate.floor(value));
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return read(() -> delegate.ceiling(value));
+    }
+
+    @Override
+    public T lower(T value) {
+        return read(() -> delegate.lower(value));
+    }
+
+    @Override
+    public T higher(T value) {
+        return read(() -> delegate.higher(value));
+    }
+
+    @Override
+    public boolean insert(T value) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.insert(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean delete(T value) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.delete(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void bulkLoad(T[] sorted) {
+        write(() -> {
+            delegate.bulkLoad(sorted);
+            return null;
+        });
+    }
+
+    @Override
+    public BatchResult insertAll(Collection<T> values) {
+        return write(() -> delegate.insertAll(values));
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<T> values) {
+        return write(() -> delegate.deleteAll(values));
+    }
+
+    @Override
+    public BatchResult containsAll(Collection<T> values) {
+        return read(() -> delegate.containsAll(values));
+    }
+
+    private Object[] snapshot(Supplier<Iterator<T>> source) {
+        return read(() -> {
+            List<T> copy = new ArrayList<>();
+            source.get().forEachRemaining(copy::add);
+            return copy.toArray();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Spliterator<T> spliterate(Object[] keys) {
+        return (Spliterator<T>) (Spliterator<?>) Spliterators.spliterator(keys, Spliterator.DISTINCT
+                | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return spliterate(snapshot(delegate::iterator));
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return Spliterators.iterator(spliterate(snapshot(() -> delegate.range(from, fromInclusive, to, toInclusive))));
+    }
+
+    @Override
+    public void traverseInOrder() {
+        read(() -> {
+            delegate.traverseInOrder();
+            return null;
+        });
+    }
+
+    @Override
+    public void traversePreOrder() {
+        read(() -> {
+            delegate.traversePreOrder();
+            return null;
+        });
+    }
+
+    @Override
+    public void traversePostOrder() {
+        read(() -> {
+            delegate.traversePostOrder();
+            return null;
+        });
+    }
+}
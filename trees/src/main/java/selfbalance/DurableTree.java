@@ -0,0 +1,674 @@
+package selfbalance;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Makes the writes of any SelfBalanceTreeInterface durable with a write-ahead
+// log. A write is applied to the tree, appended to an in-memory group and
+// acknowledged once a committer thread has written the group to the log and
+// forced it to disk. The committer waits up to the latency budget after the
+// first record of a group arrives, so concurrent writers share one force().
+// A write whose record cannot be logged is undone in the tree before its
+// writer sees the error, so the tree never holds a change the log lost.
+// Readers go straight to the tree and may see a write shortly before it is
+// durable; wrap the tree in ConcurrentSelfBalanceTree to read concurrently.
+//
+// Files in the directory carry a generation number: tree-<g>.snapshot holds
+// the keys as of the start of log tree-<g>.wal. When the log outgrows the
+// compaction threshold the keys are copied under the write lock, writes move
+// on to the next generation's log, and the snapshot is written in the
+// background; older files are deleted once it is on disk. Startup loads the
+// newest snapshot and replays every log from its generation on, cutting off a
+// record torn by a crash.
+public class DurableTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T>, Closeable {
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+    private static final int RECORD_OVERHEAD = Integer.BYTES + 1 + Integer.BYTES; // length, op, checksum
+    private static final int GROUP_BYTES = 1 << 20; // Commit early once a group gets this large
+
+    private final SelfBalanceTreeInterface<T> delegate;
+    private final Path directory;
+    private final KeyCodec<T> codec;
+    private final long commitLatencyNanos;
+    private final long compactionThreshold;
+
+    // Lock order: this (applies writes), then ioLock (owns the log channel),
+    // then commitLock (guards the pending group and the sequence numbers)
+    private final Object ioLock = new Object();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition recordsPending = commitLock.newCondition();
+    private final Condition recordsDurable = commitLock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(GROUP_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(GROUP_BYTES);
+    private long appendedSeq;
+    private long durableSeq;
+    // Set when writing or forcing a group fails. The group's records are then
+    // lost until rollBack() has undone them in the tree; only after that do
+    // their writers see the failure
+    private IOException failure;
+    private ByteBuffer lost;
+    private boolean closed;
+
+    private FileChannel log;
+    private long generation;
+    private long logBytes;
+
+    private final Thread committer;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tree-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    public DurableTree(SelfBalanceTreeInterface<T> delegate, Path directory, KeyCodec<T> codec) throws IOException {
+        this(delegate, directory, codec, 1000, 64L << 20);
+    }
+
+    // commitLatencyMicros bounds how long a write waits for others to share
+    // its force(); the log is compacted once it holds compactionThreshold bytes
+    public DurableTree(SelfBalanceTreeInterface<T> delegate, Path directory, KeyCodec<T> codec,
+                       long commitLatencyMicros, long compactionThreshold) throws IOException {
+        this.delegate = delegate;
+        this.directory = directory;
+        this.codec = codec;
+        this.commitLatencyNanos = TimeUnit.MICROSECONDS.toNanos(commitLatencyMicros);
+        this.compactionThreshold = compactionThreshold;
+        Files.createDirectories(directory);
+        recover();
+        committer = new Thread(this::commitLoop, "tree-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve("tree-" + generation + ".snapshot");
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("tree-" + generation + ".wal");
+    }
+
+    // Generation number of a file of the given kind, or -1 for other files
+    private static long generationOf(Path file, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("tree-") || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(5, name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void recover() throws IOException {
+        long snapshotGeneration = -1;
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                snapshotGeneration = Math.max(snapshotGeneration, generationOf(file, ".snapshot"));
+                long logGeneration = generationOf(file, ".wal");
+                if (logGeneration >= 0) {
+                    logs.put(logGeneration, file);
+                }
+            }
+        }
+        if (snapshotGeneration >= 0) {
+            TreeSnapshot.load(delegate, snapshotPath(snapshotGeneration), codec);
+        }
+        generation = Math.max(snapshotGeneration, 0);
+        for (long logGeneration : logs.tailMap(generation).keySet()) {
+            boolean newest = logGeneration == logs.lastKey();
+            replay(logs.get(logGeneration), newest);
+            generation = logGeneration;
+        }
+        log = FileChannel.open(logPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.position(log.size());
+        logBytes = log.size();
+    }
+
+    // Applies the records of one log. A damaged record
+    // can only be the tail of the newest log, where a crash cut it short; it
+    // is truncated away so new records follow the last good one
+    private void replay(Path file, boolean newest) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            TreeSnapshot.Input input = new TreeSnapshot.Input(channel);
+            CRC32C checksum = new CRC32C();
+            long good = 0;
+            while (input.hasMore()) {
+                try {
+                    int length = input.require(Integer.BYTES).getInt();
+                    if (length < 0 || length > channel.size() - input.position()
+                            || codec.fixedLength() >= 0 && length != codec.fixedLength()) {
+                        throw new EOFException("Record length out of range");
+                    }
+                    ByteBuffer record = input.require(1 + length + Integer.BYTES);
+                    int start = record.position();
+                    checksum.reset();
+                    checksum.update(record.slice(start, 1 + length));
+                    if ((int) checksum.getValue() != record.getInt(start + 1 + length)) {
+                        throw new EOFException("Record checksum mismatch");
+                    }
+                    byte op = record.get();
+                    T key = codec.decode(record, length);
+                    record.getInt();
+                    if (op == INSERT) {
+                        delegate.insert(key);
+                    } else {
+                        delegate.delete(key);
+                    }
+                    good = input.position();
+                } catch (EOFException e) {
+                    if (!newest) {
+                        throw new IOException("Damaged write-ahead log " + file + " at offset " + good, e);
+                    }
+                    channel.truncate(good);
+                    channel.force(true);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Appends a record to the pending group and returns its sequence number;
+    // called with this tree's lock held so the log order is the apply order
+    private long append(byte op, byte[] bytes) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(op);
+        checksum.update(bytes);
+        commitLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Tree is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            int needed = RECORD_OVERHEAD + bytes.length;
+            if (pending.remaining() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + needed));
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            pending.putInt(bytes.length).put(op).put(bytes).putInt((int) checksum.getValue());
+            recordsPending.signal();
+            return ++appendedSeq;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long seq) {
+        commitLock.lock();
+        try {
+            while (durableSeq < seq) {
+                if (failure != null && lost == null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                recordsDurable.awaitUninterruptibly();
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            commitLock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    recordsPending.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return; // Closed and nothing left to write
+                }
+                // Let more writers join the group, up to the latency budget
+                long remaining = commitLatencyNanos;
+                while (remaining > 0 && !closed && pending.position() < GROUP_BYTES) {
+                    try {
+                        remaining = recordsPending.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            } finally {
+                commitLock.unlock();
+            }
+            try {
+                commitGroup();
+            } catch (IOException e) {
+                rollBack();
+                return;
+            }
+            if (logBytes >= compactionThreshold && compacting.compareAndSet(false, true)) {
+                compactor.execute(() -> {
+                    try {
+                        checkpoint();
+                    } catch (IOException e) {
+                        System.err.println("Error compacting write-ahead log: " + e.getMessage());
+                    } finally {
+                        compacting.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    // Writes and forces whatever is pending, then releases its writers
+    private void commitGroup() throws IOException {
+        synchronized (ioLock) {
+            ByteBuffer group;
+            long upTo;
+            commitLock.lock();
+            try {
+                if (failure != null) {
+                    throw failure; // Nothing may follow the lost records
+                }
+                group = pending;
+                pending = spare;
+                upTo = appendedSeq;
+            } finally {
+                commitLock.unlock();
+            }
+            group.flip();
+            int bytes = group.remaining();
+            if (bytes > 0) {
+                long start = -1;
+                try {
+                    start = log.position();
+                    TreeSnapshot.writeFully(log, group);
+                    log.force(false);
+                } catch (IOException e) {
+                    // Cut off whatever part of the group got written, so a
+                    // restart cannot replay records the tree is about to undo
+                    if (start >= 0) {
+                        try {
+                            log.truncate(start);
+                        } catch (IOException truncateFailure) {
+                            e.addSuppressed(truncateFailure);
+                        }
+                    }
+                    commitLock.lock();
+                    try {
+                        failure = e;
+                        lost = group.rewind();
+                    } finally {
+                        commitLock.unlock();
+                    }
+                    throw e;
+                }
+                logBytes += bytes;
+            }
+            group.clear();
+            spare = group;
+            commitLock.lock();
+            try {
+                durableSeq = Math.max(durableSeq, upTo);
+                recordsDurable.signalAll();
+            } finally {
+                commitLock.unlock();
+            }
+        }
+    }
+
+    // Compacts the log into a snapshot: the keys are copied and the log rolled
+    // over to the next generation under the write lock, the snapshot is
+    // written without it
+    public void checkpoint() throws IOException {
+        T[] keys;
+        int height;
+        long snapshotGeneration;
+        synchronized (this) {
+            keys = SortedKeys.toArray(delegate);
+            height = delegate.getHeight();
+            snapshotGeneration = rollLog();
+        }
+        writeSnapshot(keys, height, snapshotGeneration);
+    }
+
+    // Commits the pending group to the current log and starts the next one;
+    // called with this tree's lock held, so no record is appended meanwhile
+    private long rollLog() throws IOException {
+        try {
+            synchronized (ioLock) {
+                commitGroup();
+            }
+        } catch (IOException e) {
+            rollBack();
+            throw e;
+        }
+        synchronized (ioLock) {
+            log.close();
+            generation++;
+            log = FileChannel.open(logPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            logBytes = 0;
+            return generation;
+        }
+    }
+
+    private void writeSnapshot(T[] keys, int height, long snapshotGeneration) throws IOException {
+        publishSnapshot(keys, height, snapshotGeneration);
+        deleteOlder(snapshotGeneration);
+    }
+
+    // Once the snapshot file has its final name, recovery starts from it
+    private void publishSnapshot(T[] keys, int height, long snapshotGeneration) throws IOException {
+        Path target = snapshotPath(snapshotGeneration);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        TreeSnapshot.write(Arrays.asList(keys), height, temporary, codec, true);
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Everything older is covered by the snapshot of snapshotGeneration
+    private void deleteOlder(long snapshotGeneration) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                long fileGeneration = Math.max(generationOf(file, ".snapshot"), generationOf(file, ".wal"));
+                if (fileGeneration >= 0 && fileGeneration < snapshotGeneration) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Undoes every record that can no longer become durable, newest first, so
+    // the tree is back in step with the log, then lets their writers fail.
+    // Appends are refused from the moment the failure is recorded, and this
+    // tree's lock keeps writers out until the undo is done
+    private synchronized void rollBack() {
+        List<ByteBuffer> groups = new ArrayList<>();
+        commitLock.lock();
+        try {
+            if (lost == null) {
+                return; // Already rolled back
+            }
+            groups.add(lost);
+            pending.flip();
+            groups.add(ByteBuffer.allocate(pending.remaining()).put(pending).flip());
+            pending.clear();
+        } finally {
+            commitLock.unlock();
+        }
+        List<Byte> ops = new ArrayList<>();
+        List<T> keys = new ArrayList<>();
+        for (ByteBuffer group : groups) {
+            while (group.hasRemaining()) {
+                int length = group.getInt();
+                ops.add(group.get());
+                keys.add(codec.decode(group, length));
+                group.getInt(); // Checksum
+            }
+        }
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            undo(ops.get(i), keys.get(i));
+        }
+        commitLock.lock();
+        try {
+            lost = null;
+            recordsDurable.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void undo(byte op, T key) {
+        if (op == INSERT) {
+            delegate.delete(key);
+        } else {
+            delegate.insert(key);
+        }
+    }
+
+    // A write reaches the tree before its record reaches the log, so a record
+    // the log refuses (closed, or failed earlier) has its write undone on the
+    // spot; keys are encoded before anything changes
+    @Override
+    public boolean insert(T value) {
+        return write(INSERT, value);
+    }
+
+    @Override
+    public boolean delete(T value) {
+        return write(DELETE, value);
+    }
+
+    private boolean write(byte op, T value) {
+        byte[] bytes = codec.encode(value);
+        long seq;
+        synchronized (this) {
+            if (!(op == INSERT ? delegate.insert(value) : delegate.delete(value))) {
+                return false;
+            }
+            try {
+                seq = append(op, bytes);
+            } catch (RuntimeException e) {
+                undo(op, value);
+                throw e;
+            }
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    // Batches log only the keys they change, so every record in the log can be
+    // undone exactly; one wait covers the whole batch
+    @Override
+    public BatchResult insertAll(Collection<T> values) {
+        return writeAll(INSERT, values);
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<T> values) {
+        return writeAll(DELETE, values);
+    }
+
+    private BatchResult writeAll(byte op, Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        byte[][] encoded = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            encoded[i] = codec.encode(keys[i]);
+        }
+        long seq = 0;
+        int applied = 0;
+        synchronized (this) {
+            List<T> changes = new ArrayList<>();
+            List<byte[]> records = new ArrayList<>();
+            for (int i = 0; i < keys.length; i++) {
+                if (delegate.search(keys[i]) != (op == INSERT)) {
+                    changes.add(keys[i]);
+                    records.add(encoded[i]);
+                }
+            }
+            if (op == INSERT) {
+                delegate.insertAll(changes);
+            } else {
+                delegate.deleteAll(changes);
+            }
+            for (; applied < changes.size(); applied++) {
+                try {
+                    seq = append(op, records.get(applied));
+                } catch (RuntimeException e) {
+                    List<T> refused = changes.subList(applied, changes.size());
+                    if (op == INSERT) {
+                        delegate.deleteAll(refused);
+                    } else {
+                        delegate.insertAll(refused);
+                    }
+                    throw e;
+                }
+            }
+        }
+        awaitDurable(seq);
+        return new BatchResult(applied, values.size() - applied);
+    }
+
+    // Replacing the contents is made durable by writing a snapshot on the
+    // spot, holding the write lock until it is on disk. The pending group is
+    // committed first, and the new keys only reach the tree once their
+    // snapshot is on disk, so a failure at any step leaves the tree as it was
+    @Override
+    public synchronized void bulkLoad(T[] sorted) {
+        try {
+            replaceWith(SortedKeys.distinct(sorted));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot", e);
+        }
+    }
+
+    @Override
+    public synchronized void load(Path path, KeyCodec<T> codec) throws IOException {
+        replaceWith(TreeSnapshot.read(path, codec));
+    }
+
+    private void replaceWith(T[] keys) throws IOException {
+        long snapshotGeneration = rollLog();
+        // The tree is not built yet, so record the height bulkLoad gives a
+        // binary tree; snapshots keep it for information only
+        publishSnapshot(keys, 32 - Integer.numberOfLeadingZeros(keys.length), snapshotGeneration);
+        delegate.bulkLoad(keys);
+        try {
+            deleteOlder(snapshotGeneration);
+        } catch (IOException e) {
+            // Harmless: recovery starts from the newest snapshot, and the
+            // next checkpoint deletes what is left
+            System.err.println("Error deleting old snapshots and logs: " + e.getMessage());
+        }
+    }
+
+    // Closes the log under the committer, as a failing disk would; for tests
+    void breakLog() throws IOException {
+        synchronized (ioLock) {
+            log.close();
+        }
+    }
+
+    // Commits what is pending and stops the background threads
+    @Override
+    public void close() throws IOException {
+        commitLock.lock();
+        try {
+            closed = true;
+            recordsPending.signal();
+        } finally {
+            commitLock.unlock();
+        }
+        try {
+            committer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            log.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public boolean search(T value) {
+        return delegate.search(value);
+    }
+
+    @Override
+    public void traverseInOrder() {
+        delegate.traverseInOrder();
+    }
+
+    @Override
+    public void traversePreOrder() {
+        delegate.traversePreOrder();
+    }
+
+    @Override
+    public void traversePostOrder() {
+        delegate.traversePostOrder();
+    }
+
+    @Override
+    public int getHeight() {
+        return delegate.getHeight();
+    }
+
+    @Override
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    @Override
+    public T first() {
+        return delegate.first();
+    }
+
+    @Override
+    public T last() {
+        return delegate.last();
+    }
+
+    @Override
+    public T floor(T value) {
+        return delegate.floor(value);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return delegate.ceiling(value);
+    }
+
+    @Override
+    public T lower(T value) {
+        return delegate.lower(value);
+    }
+
+    @Override
+    public T higher(T value) {
+        return delegate.higher(value);
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return delegate.range(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public BatchResult containsAll(Collection<T> values) {
+        return delegate.containsAll(values);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return delegate.spliterator();
+    }
+}
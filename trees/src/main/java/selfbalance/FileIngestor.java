@@ -0,0 +1,237 @@
+package selfbalance;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reads a file of one key per line into a sorted array of distinct keys,
+// ready for bulkLoad or the batch operations of the trees. The calling thread
+// reads the file through a FileChannel in fixed-size chunks, cut at the last
+// line break so no line spans two chunks. Worker threads decode the chunks
+// (UTF-8, each line trimmed as String.trim does, blank lines skipped) and
+// sort and de-duplicate them into runs, which are finally merged k ways. The
+// reader only waits for the workers when too many chunks are still undecoded,
+// so with enough workers the load runs at the speed of the disk.
+public final class FileIngestor {
+    // Called on the reading thread after each chunk is read
+    public interface Progress {
+        void update(long bytesRead, long totalBytes);
+    }
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private final int chunkBytes;
+    private final int threads;
+
+    public FileIngestor() {
+        this(DEFAULT_CHUNK_BYTES, Runtime.getRuntime().availableProcessors());
+    }
+
+    public FileIngestor(int chunkBytes, int threads) {
+        if (chunkBytes < 1 || threads < 1) {
+            throw new IllegalArgumentException("Chunk size and thread count must be positive");
+        }
+        this.chunkBytes = chunkBytes;
+        this.threads = threads;
+    }
+
+    public Result read(Path path) throws IOException {
+        return read(path, (bytesRead, totalBytes) -> { });
+    }
+
+    public Result read(Path path, Progress progress) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "file-ingestor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long totalBytes = channel.size();
+            List<Future<Run>> pending = new ArrayList<>();
+            int decoded = 0; // pending[0..decoded) are known to be done
+            long bytesRead = 0;
+            byte[] carry = new byte[0]; // Start of a line cut off by the last chunk
+            while (true) {
+                byte[] chunk = Arrays.copyOf(carry, carry.length + chunkBytes);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, carry.length, chunk.length - carry.length);
+                int read = 0;
+                while (buffer.hasRemaining() && (read = channel.read(buffer)) >= 0) {
+                    bytesRead += read;
+                }
+                int length = buffer.position();
+                if (read < 0) {
+                    pending.add(workers.submit(() -> Run.decode(chunk, length)));
+                    progress.update(bytesRead, totalBytes);
+                    break;
+                }
+                int end = lastLineBreak(chunk, length);
+                carry = Arrays.copyOfRange(chunk, end + 1, length);
+                if (end >= 0) {
+                    pending.add(workers.submit(() -> Run.decode(chunk, end + 1)));
+                }
+                progress.update(bytesRead, totalBytes);
+                // Bound the chunks held in memory while the workers catch up
+                while (pending.size() - decoded > 2 * threads) {
+                    await(pending.get(decoded++));
+                }
+            }
+            Run[] runs = new Run[pending.size()];
+            long lines = 0;
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = await(pending.get(i));
+                lines += runs[i].lines;
+            }
+            return new Result(merge(runs), lines, bytesRead, System.nanoTime() - start);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static int lastLineBreak(byte[] chunk, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (chunk[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Run await(Future<Run> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Decoding failed", e.getCause());
+        }
+    }
+
+    // Merges the sorted runs into one array of distinct keys; the heap holds
+    // one cursor per run, ordered by the key under it
+    private static String[] merge(Run[] runs) {
+        if (runs.length == 1) {
+            return runs[0].keys;
+        }
+        int total = 0;
+        PriorityQueue<Run> heap = new PriorityQueue<>(Math.max(1, runs.length),
+                (a, b) -> a.keys[a.next].compareTo(b.keys[b.next]));
+        for (Run run : runs) {
+            total += run.keys.length;
+            if (run.keys.length > 0) {
+                heap.add(run);
+            }
+        }
+        String[] merged = new String[total];
+        int count = 0;
+        while (!heap.isEmpty()) {
+            Run run = heap.poll();
+            String key = run.keys[run.next++];
+            if (count == 0 || !merged[count - 1].equals(key)) {
+                merged[count++] = key;
+            }
+            if (run.next < run.keys.length) {
+                heap.add(run);
+            }
+        }
+        return count == total ? merged : Arrays.copyOf(merged, count);
+    }
+
+    // The distinct keys of one chunk in ascending order, next being the merge
+    // cursor, and the number of non-blank lines they came from
+    private static final class Run {
+        final String[] keys;
+        final long lines;
+        int next;
+
+        private Run(String[] keys, long lines) {
+            this.keys = keys;
+            this.lines = lines;
+        }
+
+        static Run decode(byte[] chunk, int length) {
+            List<String> keys = new ArrayList<>();
+            int lineStart = 0;
+            while (lineStart < length) {
+                int lineEnd = lineStart;
+                while (lineEnd < length && chunk[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                // Bytes up to ' ' are exactly the characters trim() drops,
+                // and never occur inside a multi-byte UTF-8 sequence
+                int from = lineStart;
+                int to = lineEnd;
+                while (from < to && (chunk[from] & 0xFF) <= ' ') {
+                    from++;
+                }
+                while (to > from && (chunk[to - 1] & 0xFF) <= ' ') {
+                    to--;
+                }
+                if (from < to) {
+                    keys.add(new String(chunk, from, to - from, StandardCharsets.UTF_8));
+                }
+                lineStart = lineEnd + 1;
+            }
+            int lines = keys.size();
+            return new Run(SortedKeys.distinct(keys.toArray(new String[0])), lines);
+        }
+    }
+
+    // Sorted distinct keys of a file and what reading it took
+    public static final class Result {
+        private final String[] keys;
+        private final long lines;
+        private final long bytes;
+        private final long nanos;
+
+        private Result(String[] keys, long lines, long bytes, long nanos) {
+            this.keys = keys;
+            this.lines = lines;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public String[] getKeys() {
+            return keys;
+        }
+
+        // Non-blank lines read, so getLines() - getKeys().length repeated keys
+        public long getLines() {
+            return lines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getMegabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines, %d distinct keys, %.1f MB in %.2f s (%.1f MB/s)", lines, keys.length,
+                    bytes / (1024.0 * 1024.0), nanos / 1e9, getMegabytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package selfbalance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Immutable tree of long keys searched straight out of a memory-mapped file.
+//
+// The keys are stored as a sorted array in Eytzinger (breadth-first) order:
+// the root is slot 1 and the children of slot k are slots 2k and 2k + 1, so a
+// search is a loop over array indices with no pointers to chase. Layout,
+// little-endian:
+//   int magic, byte version, three bytes padding, int size, padding to byte 64,
+//   an unused slot 0, then slot k at byte 64 + 8k.
+// Slot 0 keeps slots 8j..8j+7 inside one 64 byte cache line, so the eight
+// great-grandchildren of a node arrive together and a descent touches a new
+// line only every third level. Nothing is decoded on open: the mapping is
+// shared with every other process that opens the same file, and concurrent
+// readers need no locking since the keys never change.
+public final class FrozenLongTree {
+    private static final int MAGIC = 0x53425446; // "SBTF"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SIZE_OFFSET = 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // A single mapping is indexed by int
+    private static final int MAX_SIZE = (Integer.MAX_VALUE - HEADER_BYTES) / Long.BYTES - 1;
+
+    private final MappedByteBuffer keys;
+    private final int size;
+
+    private FrozenLongTree(MappedByteBuffer keys, int size) {
+        this.keys = keys;
+        this.size = size;
+    }
+
+    // Freezes the keys of a tree of Integer or Long keys
+    public static <T extends Number & Comparable<T>> void freeze(SelfBalanceTreeInterface<T> tree, Path path)
+            throws IOException {
+        long[] sorted = new long[tree.getSize()];
+        int count = 0;
+        for (T key : tree) {
+            sorted[count] = key.longValue();
+            if (count > 0 && sorted[count - 1] >= sorted[count]) {
+                throw new IllegalArgumentException("Keys do not map to distinct longs in order: " + key);
+            }
+            count++;
+        }
+        write(sorted, path);
+    }
+
+    // Freezes the given keys; unsorted input is sorted and deduplicated first
+    public static void freeze(long[] keys, Path path) throws IOException {
+        write(LongAVLTree.distinct(keys), path);
+    }
+
+    private static void write(long[] sorted, Path path) throws IOException {
+        if (sorted.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Too many keys for one mapping: " + sorted.length);
+        }
+        long[] slots = new long[sorted.length + 1];
+        place(sorted, slots, 0, 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).put(VERSION).position(SIZE_OFFSET);
+            buffer.putInt(sorted.length).position(HEADER_BYTES);
+            for (long slot : slots) {
+                if (!buffer.hasRemaining()) {
+                    TreeSnapshot.flush(channel, buffer);
+                }
+                buffer.putLong(slot);
+            }
+            TreeSnapshot.flush(channel, buffer);
+        }
+    }
+
+    // Fills the slots of the subtree rooted at k with the next keys of an
+    // in-order walk, returning the index of the first key not placed
+    private static int place(long[] sorted, long[] slots, int next, int k) {
+        if (k < slots.length) {
+            next = place(sorted, slots, next, 2 * k);
+            slots[k] = sorted[next++];
+            next = place(sorted, slots, next, 2 * k + 1);
+        }
+        return next;
+    }
+
+    public static FrozenLongTree open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + Long.BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a frozen tree: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer keys = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            keys.order(ByteOrder.LITTLE_ENDIAN);
+            if (keys.getInt(0) != MAGIC) {
+                throw new IOException("Not a frozen tree: " + path);
+            }
+            byte version = keys.get(Integer.BYTES);
+            if (version != VERSION) {
+                throw new IOException("Unsupported frozen tree version " + version + ": " + path);
+            }
+            int size = keys.getInt(SIZE_OFFSET);
+            if (size < 0 || length != HEADER_BYTES + (size + 1L) * Long.BYTES) {
+                throw new IOException("Frozen tree is truncated: " + path);
+            }
+            return new FrozenLongTree(keys, size);
+        }
+    }
+
+    private long key(long slot) {
+        return keys.getLong(HEADER_BYTES + (int) slot * Long.BYTES);
+    }
+
+    // Slot of the smallest key >= value, or 0 if there is none. The descent
+    // always runs to the bottom, turning on a comparison the JIT can make
+    // branch-free; the answer is the last node where it turned left, found by
+    // dropping the trailing right turns (1 bits) and that left turn
+    private long ceilingSlot(long value) {
+        long k = 1;
+        while (k <= size) {
+            k = 2 * k + (key(k) < value ? 1 : 0);
+        }
+        return k >> (Long.numberOfTrailingZeros(~k) + 1);
+    }
+
+    // Slot of the largest key <= value, or 0: the last right turn instead
+    private long floorSlot(long value) {
+        long k = 1;
+        while (k <= size) {
+            k = 2 * k + (key(k) <= value ? 1 : 0);
+        }
+        return k >> (Long.numberOfTrailingZeros(k) + 1);
+    }
+
+    public boolean search(long value) {
+        long slot = ceilingSlot(value);
+        return slot != 0 && key(slot) == value;
+    }
+
+    // Ordered navigation; each returns null when there is no such key
+    public Long ceiling(long value) {
+        long slot = ceilingSlot(value);
+        return slot == 0 ? null : key(slot);
+    }
+
+    public Long floor(long value) {
+        long slot = floorSlot(value);
+        return slot == 0 ? null : key(slot);
+    }
+
+    public Long higher(long value) {
+        return value == Long.MAX_VALUE ? null : ceiling(value + 1);
+    }
+
+    public Long lower(long value) {
+        return value == Long.MIN_VALUE ? null : floor(value - 1);
+    }
+
+    public Long first() {
+        return size == 0 ? null : key(Long.highestOneBit(size));
+    }
+
+    public Long last() {
+        return size == 0 ? null : floor(Long.MAX_VALUE);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // The implicit tree is complete, so every level but the last is full
+    public int getHeight() {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size);
+    }
+
+    // Keys in ascending order
+    public long[] toArray() {
+        long[] sorted = new long[size];
+        collect(1, sorted, 0);
+        return sorted;
+    }
+
+    private int collect(long k, long[] sorted, int next) {
+        if (k <= size) {
+            next = collect(2 * k, sorted, next);
+            sorted[next++] = key(k);
+            next = collect(2 * k + 1, sorted, next);
+        }
+        return next;
+    }
+
+    public void traverseInOrder() {
+        for (long key : toArray()) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+}
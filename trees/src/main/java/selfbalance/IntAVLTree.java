@@ -0,0 +1,265 @@
+package selfbalance;
+
+import java.util.Arrays;
+
+// AVLTree specialised for primitive int keys: no boxing, and the node holds
+// the key inline instead of a reference to an Integer
+public class IntAVLTree {
+    static final class Node {
+        int value;
+        Node left;
+        Node right;
+        int height;
+
+        Node(int value) {
+            this.value = value;
+            this.height = 1;
+        }
+    }
+
+    private Node root = null;
+    private int size = 0;
+    private boolean modified = false;
+
+    public boolean insert(int value) {
+        modified = false;
+        root = insert(root, value);
+        if (!modified) return false; // Avoid duplicates
+        size++;
+        return true;
+    }
+
+    private Node insert(Node current, int value) {
+        if (current == null) {
+            modified = true;
+            return new Node(value);
+        }
+        int comparison = Integer.compare(value, current.value);
+        if (comparison < 0) {
+            current.left = insert(current.left, value);
+        } else if (comparison > 0) {
+            current.right = insert(current.right, value);
+        } else {
+            return current;
+        }
+        return modified ? balanceTree(current) : current;
+    }
+
+    public boolean search(int value) {
+        Node current = root;
+        while (current != null) {
+            int comparison = Integer.compare(value, current.value);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean delete(int value) {
+        modified = false;
+        root = delete(root, value);
+        if (!modified) return false; // Not found
+        size--;
+        return true;
+    }
+
+    private Node delete(Node root, int key) {
+        if (root == null) {
+            return null;
+        }
+        int comparison = Integer.compare(key, root.value);
+        if (comparison < 0) {
+            root.left = delete(root.left, key);
+        } else if (comparison > 0) {
+            root.right = delete(root.right, key);
+        } else {
+            modified = true;
+            if (root.left == null) {
+                return root.right;
+            } else if (root.right == null) {
+                return root.left;
+            }
+            Node temp = root.left;
+            while (temp.right != null) {
+                temp = temp.right;
+            }
+            root.value = temp.value;
+            root.left = deleteMax(root.left);
+        }
+        return modified ? balanceTree(root) : root;
+    }
+
+    private Node deleteMax(Node node) {
+        if (node.right == null) {
+            return node.left;
+        }
+        node.right = deleteMax(node.right);
+        return balanceTree(node);
+    }
+
+    // Replaces the contents; unsorted input is sorted and de-duplicated first
+    public void bulkLoad(int[] sorted) {
+        int[] keys = distinct(sorted);
+        root = build(keys, 0, keys.length - 1);
+        size = keys.length;
+    }
+
+    private Node build(int[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(keys[mid]);
+        node.left = build(keys, lo, mid - 1);
+        node.right = build(keys, mid + 1, hi);
+        updateHeight(node);
+        return node;
+    }
+
+    public BatchResult insertAll(int[] values) {
+        int applied = 0;
+        for (int value : distinct(values)) {
+            if (insert(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.length - applied);
+    }
+
+    public BatchResult deleteAll(int[] values) {
+        int applied = 0;
+        for (int value : distinct(values)) {
+            if (delete(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.length - applied);
+    }
+
+    public BatchResult containsAll(int[] values) {
+        int found = 0;
+        for (int value : values) {
+            if (search(value)) {
+                found++;
+            }
+        }
+        return new BatchResult(found, values.length - found);
+    }
+
+    static int[] distinct(int[] keys) {
+        boolean ascending = true;
+        for (int i = 1; i < keys.length && ascending; i++) {
+            ascending = keys[i - 1] < keys[i];
+        }
+        if (ascending) {
+            return keys;
+        }
+        int[] sorted = Arrays.copyOf(keys, keys.length);
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private int balance(Node node) {
+        return node == null ? 0 : height(node.right) - height(node.left);
+    }
+
+    private void updateHeight(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    private Node rightRotate(Node y) {
+        Node x = y.left;
+        y.left = x.right;
+        x.right = y;
+        updateHeight(y);
+        updateHeight(x);
+        return x;
+    }
+
+    private Node leftRotate(Node x) {
+        Node y = x.right;
+        x.right = y.left;
+        y.left = x;
+        updateHeight(x);
+        updateHeight(y);
+        return y;
+    }
+
+    // balance=height(right subtree)-height(left subtree)
+    private Node balanceTree(Node root) {
+        updateHeight(root);
+        int balance = balance(root);
+        if (balance > 1) {
+            if (balance(root.right) < 0) { // RL
+                root.right = rightRotate(root.right);
+            }
+            return leftRotate(root);
+        }
+        if (balance < -1) {
+            if (balance(root.left) > 0) { // LR
+                root.left = leftRotate(root.left);
+            }
+            return rightRotate(root);
+        }
+        return root;
+    }
+
+    public void traverseInOrder() {
+        traverseInOrder(root);
+        System.out.println();
+    }
+
+    private void traverseInOrder(Node node) {
+        if (node == null) return;
+        traverseInOrder(node.left);
+        System.out.print(node.value + " ");
+        traverseInOrder(node.right);
+    }
+
+    public void traversePreOrder() {
+        traversePreOrder(root);
+        System.out.println();
+    }
+
+    private void traversePreOrder(Node node) {
+        if (node == null) return;
+        System.out.print(node.value + " ");
+        traversePreOrder(node.left);
+        traversePreOrder(node.right);
+    }
+
+    public void traversePostOrder() {
+        traversePostOrder(root);
+        System.out.println();
+    }
+
+    private void traversePostOrder(Node node) {
+        if (node == null) return;
+        traversePostOrder(node.left);
+        traversePostOrder(node.right);
+        System.out.print(node.value + " ");
+    }
+
+    public int getHeight() {
+        return height(root);
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
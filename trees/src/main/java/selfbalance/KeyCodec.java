@@ -0,0 +1,118 @@
+package selfbalance;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary form of a key type in tree snapshots. The id is stored in the
+// snapshot header so a reader knows how to decode the keys that follow.
+public interface KeyCodec<T extends Comparable<T>> {
+    byte id();
+
+    byte[] encode(T key);
+
+    // Reads one key of the given encoded length from the buffer
+    T decode(ByteBuffer buffer, int length);
+
+    // Length every key of this codec encodes to, or -1 if it varies. Readers
+    // of stored keys reject any other length, since decode() of a fixed-width
+    // codec reads its width whatever length it is given
+    default int fixedLength() {
+        return -1;
+    }
+
+    KeyCodec<String> STRING = new KeyCodec<String>() {
+        @Override
+        public byte id() {
+            return 1;
+        }
+
+        @Override
+        public byte[] encode(String key) {
+            return key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer, int length) {
+            if (buffer.hasArray()) {
+                String key = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                        StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return key;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+        @Override
+        public byte id() {
+            return 2;
+        }
+
+        @Override
+        public byte[] encode(Integer key) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(key).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int length) {
+            return buffer.getInt();
+        }
+
+        @Override
+        public int fixedLength() {
+            return Integer.BYTES;
+        }
+    };
+
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public byte id() {
+            return 3;
+        }
+
+        @Override
+        public byte[] encode(Long key) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(key).array();
+        }
+
+        @Override
+        public Long decode(ByteBuffer buffer, int length) {
+            return buffer.getLong();
+        }
+
+        @Override
+        public int fixedLength() {
+            return Long.BYTES;
+        }
+    };
+
+    static KeyCodec<?> forId(byte id) {
+        switch (id) {
+            case 1:
+                return STRING;
+            case 2:
+                return INTEGER;
+            case 3:
+                return LONG;
+            default:
+                throw new IllegalArgumentException("Unknown key codec: " + id);
+        }
+    }
+
+    // Codec for the runtime type of a key
+    static KeyCodec<?> forKey(Object key) {
+        if (key instanceof String) {
+            return STRING;
+        }
+        if (key instanceof Integer) {
+            return INTEGER;
+        }
+        if (key instanceof Long) {
+            return LONG;
+        }
+        throw new IllegalArgumentException("No key codec for " + key.getClass().getName());
+    }
+}
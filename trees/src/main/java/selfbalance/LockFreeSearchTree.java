@@ -0,0 +1,594 @@
+package selfbalance;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+// Non-blocking ordered set: the external (leaf-oriented) binary search tree of
+// Ellen, Fatourou, Ruppert and van Breugel. Keys live in the leaves, internal
+// nodes only route. An insert replaces one leaf by a three-node subtree and a
+// delete replaces a parent by the leaf's sibling, each with a single child
+// CAS. Before that CAS the writer flags the parent (and, for deletes, marks it
+// and flags the grandparent) by CASing its update field to a record that
+// describes the whole operation, so a thread that finds a flagged node can
+// finish the operation itself instead of waiting for the one that started it.
+//
+// insert, delete and search are linearizable and lock-free. getSize, the
+// navigation queries and the iterators are weakly consistent: they see every
+// change that completed before they started and may or may not see changes
+// that run concurrently. bulkLoad replaces the whole tree and must not run
+// alongside other writers. The tree does not rebalance, so its height depends
+// on the order the keys arrive in; random keys give O(log n) on average.
+public class LockFreeSearchTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
+    // States of a node's update field
+    private static final int CLEAN = 0;
+    private static final int IFLAG = 1; // An insert is replacing a child
+    private static final int DFLAG = 2; // A delete is replacing a child
+    private static final int MARK = 3; // The node is being removed
+
+    static class Node<T> {
+        final T key;
+        // Sentinel keys sit above every real key: 0 for real, 1 below 2
+        final int infinity;
+
+        Node(T key, int infinity) {
+            this.key = key;
+            this.infinity = infinity;
+        }
+    }
+
+    static final class Leaf<T> extends Node<T> {
+        Leaf(T key, int infinity) {
+            super(key, infinity);
+        }
+    }
+
+    static final class Internal<T> extends Node<T> {
+        volatile Node<T> left;
+        volatile Node<T> right;
+        volatile Update update = CLEAN_UPDATE;
+
+        Internal(T key, int infinity, Node<T> left, Node<T> right) {
+            super(key, infinity);
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    // Immutable (state, operation) pair; a CAS on the update field compares
+    // the reference, so each flag or mark is a fresh object
+    static final class Update {
+        final int state;
+        final Object info;
+
+        Update(int state, Object info) {
+            this.state = state;
+            this.info = info;
+        }
+    }
+
+    private static final Update CLEAN_UPDATE = new Update(CLEAN, null);
+
+    // Everything a helper needs to finish an insert
+    private static final class InsertInfo<T> {
+        final Internal<T> parent;
+        final Leaf<T> leaf;
+        final Internal<T> replacement;
+        final Update flag = new Update(IFLAG, this);
+
+        InsertInfo(Internal<T> parent, Leaf<T> leaf, Internal<T> replacement) {
+            this.parent = parent;
+            this.leaf = leaf;
+            this.replacement = replacement;
+        }
+    }
+
+    // Everything a helper needs to finish a delete
+    private static final class DeleteInfo<T> {
+        final Internal<T> grandparent;
+        final Internal<T> parent;
+        final Leaf<T> leaf;
+        final Update parentUpdate; // Parent's update field as the delete saw it
+        final Update flag = new Update(DFLAG, this);
+        final Update mark = new Update(MARK, this);
+
+        DeleteInfo(Internal<T> grandparent, Internal<T> parent, Leaf<T> leaf, Update parentUpdate) {
+            this.grandparent = grandparent;
+            this.parent = parent;
+            this.leaf = leaf;
+            this.parentUpdate = parentUpdate;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Internal, Node> LEFT =
+            AtomicReferenceFieldUpdater.newUpdater(Internal.class, Node.class, "left");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Internal, Node> RIGHT =
+            AtomicReferenceFieldUpdater.newUpdater(Internal.class, Node.class, "right");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Internal, Update> UPDATE =
+            AtomicReferenceFieldUpdater.newUpdater(Internal.class, Update.class, "update");
+
+    // Root routes on the second sentinel; real keys hang below its left child
+    private volatile Internal<T> root = emptyRoot();
+    private final LongAdder size = new LongAdder();
+
+    private static <T> Internal<T> emptyRoot() {
+        return new Internal<>(null, 2, new Leaf<>(null, 1), new Leaf<>(null, 2));
+    }
+
+    // Compares a real key with a node's key, sentinels being greater
+    private static <T extends Comparable<T>> int compare(T key, Node<T> node) {
+        return node.infinity != 0 ? -1 : key.compareTo(node.key);
+    }
+
+    private static <T extends Comparable<T>> int compare(Node<T> a, Node<T> b) {
+        if (a.infinity != 0 || b.infinity != 0) {
+            return Integer.compare(a.infinity, b.infinity);
+        }
+        return a.key.compareTo(b.key);
+    }
+
+    // Result of a descent: the leaf where key belongs and the two nodes above
+    // it, with their update fields read before their child pointers
+    private static final class Position<T> {
+        Internal<T> grandparent;
+        Internal<T> parent;
+        Leaf<T> leaf;
+        Update grandparentUpdate;
+        Update parentUpdate;
+    }
+
+    private Position<T> find(T key) {
+        Position<T> position = new Position<>();
+        Node<T> node = root;
+        while (node instanceof Internal) {
+            Internal<T> internal = (Internal<T>) node;
+            position.grandparent = position.parent;
+            position.grandparentUpdate = position.parentUpdate;
+            position.parent = internal;
+            position.parentUpdate = internal.update;
+            node = compare(key, internal) < 0 ? internal.left : internal.right;
+        }
+        position.leaf = (Leaf<T>) node;
+        return position;
+    }
+
+    @Override
+    public boolean search(T value) {
+        Node<T> node = root;
+        while (node instanceof Internal) {
+            Internal<T> internal = (Internal<T>) node;
+            node = compare(value, internal) < 0 ? internal.left : internal.right;
+        }
+        return node.infinity == 0 && value.compareTo(node.key) == 0;
+    }
+
+    @Override
+    public boolean insert(T value) {
+        while (true) {
+            Position<T> position = find(value);
+            Leaf<T> leaf = position.leaf;
+            if (leaf.infinity == 0 && value.compareTo(leaf.key) == 0) {
+                return false; // Duplicate value
+            }
+            if (position.parentUpdate.state != CLEAN) {
+                help(position.parentUpdate);
+                continue;
+            }
+            // The old leaf is copied so a stale helper can never CAS it back in
+            Leaf<T> added = new Leaf<>(value, 0);
+            Leaf<T> sibling = new Leaf<>(leaf.key, leaf.infinity);
+            Internal<T> replacement = compare(value, leaf) < 0
+                    ? new Internal<>(leaf.key, leaf.infinity, added, sibling)
+                    : new Internal<>(value, 0, sibling, added);
+            InsertInfo<T> op = new InsertInfo<>(position.parent, leaf, replacement);
+            if (UPDATE.compareAndSet(position.parent, position.parentUpdate, op.flag)) {
+                helpInsert(op);
+                size.increment();
+                return true;
+            }
+            help(position.parent.update);
+        }
+    }
+
+    @Override
+    public boolean delete(T value) {
+        while (true) {
+            Position<T> position = find(value);
+            Leaf<T> leaf = position.leaf;
+            if (leaf.infinity != 0 || value.compareTo(leaf.key) != 0) {
+                return false; // Not found
+            }
+            // A real leaf is never closer to the root than the first sentinel,
+            // so it always has a grandparent
+            if (position.grandparentUpdate.state != CLEAN) {
+                help(position.grandparentUpdate);
+            } else if (position.parentUpdate.state != CLEAN) {
+                help(position.parentUpdate);
+            } else {
+                DeleteInfo<T> op = new DeleteInfo<>(position.grandparent, position.parent, leaf,
+                        position.parentUpdate);
+                if (UPDATE.compareAndSet(position.grandparent, position.grandparentUpdate, op.flag)) {
+                    if (helpDelete(op)) {
+                        size.decrement();
+                        return true;
+                    }
+                } else {
+                    help(position.grandparent.update);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void help(Update update) {
+        switch (update.state) {
+            case IFLAG:
+                helpInsert((InsertInfo<T>) update.info);
+                break;
+            case MARK:
+                helpMarked((DeleteInfo<T>) update.info);
+                break;
+            case DFLAG:
+                helpDelete((DeleteInfo<T>) update.info);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void helpInsert(InsertInfo<T> op) {
+        casChild(op.parent, op.leaf, op.replacement);
+        UPDATE.compareAndSet(op.parent, op.flag, new Update(CLEAN, op));
+    }
+
+    // Marks the parent so nothing else can change it, then unlinks it. If the
+    // parent changed since the delete read it, the flag is withdrawn and the
+    // delete retries from the top
+    private boolean helpDelete(DeleteInfo<T> op) {
+        UPDATE.compareAndSet(op.parent, op.parentUpdate, op.mark);
+        Update current = op.parent.update;
+        if (current == op.mark) {
+            helpMarked(op);
+            return true;
+        }
+        help(current);
+        UPDATE.compareAndSet(op.grandparent, op.flag, new Update(CLEAN, op));
+        return false;
+    }
+
+    private void helpMarked(DeleteInfo<T> op) {
+        Node<T> other = op.parent.right == op.leaf ? op.parent.left : op.parent.right;
+        casChild(op.grandparent, op.parent, other);
+        UPDATE.compareAndSet(op.grandparent, op.flag, new Update(CLEAN, op));
+    }
+
+    private void casChild(Internal<T> parent, Node<T> expected, Node<T> replacement) {
+        if (compare(replacement, parent) < 0) {
+            LEFT.compareAndSet(parent, expected, replacement);
+        } else {
+            RIGHT.compareAndSet(parent, expected, replacement);
+        }
+    }
+
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        Internal<T> fresh = emptyRoot();
+        if (keys.length > 0) {
+            fresh.left = new Internal<>(null, 1, build(keys, 0, keys.length - 1), new Leaf<>(null, 1));
+        }
+        root = fresh;
+        size.reset();
+        size.add(keys.length);
+    }
+
+    // Balanced external tree over keys[lo..hi]: each internal node routes on
+    // the smallest key of its right subtree
+    private Node<T> build(T[] keys, int lo, int hi) {
+        if (lo == hi) {
+            return new Leaf<>(keys[lo], 0);
+        }
+        int mid = (lo + hi + 1) >>> 1;
+        return new Internal<>(keys[mid], 0, build(keys, lo, mid - 1), build(keys, mid, hi));
+    }
+
+    // A delete can be counted before the insert it undid, hence the clamp
+    @Override
+    public int getSize() {
+        return Math.max(0, size.intValue());
+    }
+
+    // Longest root-to-leaf path over real keys; the sentinel nodes are not counted
+    @Override
+    public int getHeight() {
+        return height(root);
+    }
+
+    // The walks below keep their own stacks, as the tree can be as deep as it
+    // has keys (e.g. after ascending inserts)
+    private int height(Node<T> root) {
+        ArrayDeque<Node<T>> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>(); // Real keys on the path above each node
+        nodes.push(root);
+        depths.push(0);
+        int height = 0;
+        while (!nodes.isEmpty()) {
+            Node<T> node = nodes.pop();
+            int depth = depths.pop() + (node.infinity == 0 ? 1 : 0);
+            if (node instanceof Internal) {
+                Internal<T> internal = (Internal<T>) node;
+                nodes.push(internal.right);
+                depths.push(depth);
+                nodes.push(internal.left);
+                depths.push(depth);
+            } else {
+                height = Math.max(height, depth);
+            }
+        }
+        return height;
+    }
+
+    @Override
+    public void traverseInOrder() {
+        for (T key : this) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+
+    // Pre- and post-order show the routing keys of the internal nodes as well,
+    // since they are what gives the tree its shape
+    @Override
+    public void traversePreOrder() {
+        traversePreOrder(root);
+        System.out.println();
+    }
+
+    private void traversePreOrder(Node<T> root) {
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            if (node.infinity == 0) {
+                System.out.print(node.key + " ");
+            }
+            if (node instanceof Internal) {
+                Internal<T> internal = (Internal<T>) node;
+                stack.push(internal.right);
+                stack.push(internal.left);
+            }
+        }
+    }
+
+    @Override
+    public void traversePostOrder() {
+        traversePostOrder(root);
+        System.out.println();
+    }
+
+    // Visits node, right, left, which is post-order reversed; reading each
+    // link once keeps a concurrent change from sending the walk round again
+    private void traversePostOrder(Node<T> root) {
+        ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        ArrayDeque<T> reversed = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<T> node = stack.pop();
+            if (node.infinity == 0) {
+                reversed.push(node.key);
+            }
+            if (node instanceof Internal) {
+                Internal<T> internal = (Internal<T>) node;
+                stack.push(internal.left);
+                stack.push(internal.right);
+            }
+        }
+        for (T key : reversed) {
+            System.out.print(key + " ");
+        }
+    }
+
+    @Override
+    public T first() {
+        Node<T> node = root;
+        while (node instanceof Internal) {
+            node = ((Internal<T>) node).left;
+        }
+        return node.infinity == 0 ? node.key : null;
+    }
+
+    @Override
+    public T last() {
+        // The rightmost leaf below the root's left child is the first
+        // sentinel; the last key is the largest one in front of it
+        Node<T> node = root.left;
+        Node<T> before = null;
+        while (node instanceof Internal) {
+            Internal<T> internal = (Internal<T>) node;
+            before = internal.left;
+            node = internal.right;
+        }
+        return before == null ? null : max(before);
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    // Descends to value's leaf; if that leaf does not qualify, the answer is
+    // the largest key left of the last right turn, all of which are below value
+    private T below(T value, boolean inclusive) {
+        Node<T> node = root;
+        Node<T> before = null;
+        while (node instanceof Internal) {
+            Internal<T> internal = (Internal<T>) node;
+            if (compare(value, internal) < 0) {
+                node = internal.left;
+            } else {
+                before = internal.left;
+                node = internal.right;
+            }
+        }
+        if (node.infinity == 0) {
+            int comparison = value.compareTo(node.key);
+            if (comparison > 0 || (comparison == 0 && inclusive)) {
+                return node.key;
+            }
+        }
+        return before == null ? null : max(before);
+    }
+
+    // Mirror of below(): the fallback is the smallest key right of the last
+    // left turn, which is a sentinel when no real key follows
+    private T above(T value, boolean inclusive) {
+        Node<T> node = root;
+        Node<T> after = null;
+        while (node instanceof Internal) {
+            Internal<T> internal = (Internal<T>) node;
+            if (compare(value, internal) < 0) {
+                after = internal.right;
+                node = internal.left;
+            } else {
+                node = internal.right;
+            }
+        }
+        if (node.infinity == 0) {
+            int comparison = value.compareTo(node.key);
+            if (comparison < 0 || (comparison == 0 && inclusive)) {
+                return node.key;
+            }
+        }
+        if (after == null) {
+            return null;
+        }
+        Node<T> min = after;
+        while (min instanceof Internal) {
+            min = ((Internal<T>) min).left;
+        }
+        return min.infinity == 0 ? min.key : null;
+    }
+
+    private T max(Node<T> node) {
+        while (node instanceof Internal) {
+            node = ((Internal<T>) node).right;
+        }
+        return node.key;
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return new LeafIterator(from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new LeafIterator(null, true, null, true);
+    }
+
+    // Weakly consistent, so it neither knows its size nor splits well
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+    }
+
+    // Lazy walk over the leaves. The stack holds the right subtrees still to
+    // visit; each child pointer is read once, so concurrent writes never make
+    // the walk go backwards or repeat a key
+    private final class LeafIterator implements Iterator<T> {
+        private final ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+        private final T to;
+        private final boolean toInclusive;
+        private Node<T> next;
+
+        LeafIterator(T from, boolean fromInclusive, T to, boolean toInclusive) {
+            this.to = to;
+            this.toInclusive = toInclusive;
+            Node<T> node = root;
+            while (node instanceof Internal) {
+                Internal<T> internal = (Internal<T>) node;
+                if (from == null || compare(from, internal) < 0) {
+                    stack.push(internal.right);
+                    node = internal.left;
+                } else {
+                    node = internal.right;
+                }
+            }
+            if (from != null && node.infinity == 0) {
+                int comparison = node.key.compareTo(from);
+                if (comparison < 0 || (comparison == 0 && !fromInclusive)) {
+                    node = nextLeaf();
+                }
+            }
+            settle(node);
+        }
+
+        private Node<T> nextLeaf() {
+            if (stack.isEmpty()) {
+                return null;
+            }
+            Node<T> node = stack.pop();
+            while (node instanceof Internal) {
+                Internal<T> internal = (Internal<T>) node;
+                stack.push(internal.right);
+                node = internal.left;
+            }
+            return node;
+        }
+
+        // Stops at the first sentinel or the first key past the upper bound
+        private void settle(Node<T> leaf) {
+            next = leaf;
+            if (leaf == null) {
+                return;
+            }
+            boolean past = leaf.infinity != 0;
+            if (!past && to != null) {
+                int comparison = leaf.key.compareTo(to);
+                past = comparison > 0 || (comparison == 0 && !toInclusive);
+            }
+            if (past) {
+                next = null;
+                stack.clear();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T key = next.key;
+            settle(nextLeaf());
+            return key;
+        }
+    }
+}
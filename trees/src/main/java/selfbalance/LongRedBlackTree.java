@@ -1,67 +1,56 @@
-public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
-    // Red-Black Tree properties
+package selfbalance;
+
+// RedBlackTree specialised for primitive long keys: no boxing, and the node
+// holds the key inline instead of a reference to a Long
+public class LongRedBlackTree {
     private static final boolean RED = true;
     private static final boolean BLACK = false;
 
-    private class Node {
-        T value;
+    static final class Node {
+        long value;
         boolean color;
         Node left, right, parent;
 
-        Node(T value) {
+        Node(long value) {
             this.value = value;
             this.color = RED; // New nodes are always red
-            this.left = null;
-            this.right = null;
-            this.parent = null;
         }
     }
 
     private Node root;
     private int size;
 
-    public RedBlackTree() {
-        root = null;
-        size = 0;
-    }
-
-    @Override
-    public boolean insert(T value) {
+    public boolean insert(long value) {
+        Node parent = null;
+        Node current = root;
+        int comparison = 0;
+        while (current != null) {
+            parent = current;
+            comparison = Long.compare(value, current.value);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                return false; // Duplicate value
+            }
+        }
         Node newNode = new Node(value);
-        if (root == null) {
+        newNode.parent = parent;
+        if (parent == null) {
             root = newNode;
+        } else if (comparison < 0) {
+            parent.left = newNode;
         } else {
-            Node parent = null;
-            Node current = root;
-
-            while (current != null) {
-                parent = current;
-                int comparison = value.compareTo(current.value);
-                if (comparison < 0) {
-                    current = current.left;
-                } else if (comparison > 0) {
-                    current = current.right;
-                } else {
-                    return false; // Duplicate value
-                }
-            }
-
-            newNode.parent = parent;
-
-            if (value.compareTo(parent.value) < 0) {
-                parent.left = newNode;
-            } else {
-                parent.right = newNode;
-            }
+            parent.right = newNode;
         }
         fixViolation(newNode);
         size++;
         return true;
     }
 
-    @Override
-    public boolean delete(T value) {
-        Node nodeToDelete = searchNode(root, value);
+    public boolean delete(long value) {
+        Node nodeToDelete = searchNode(value);
         if (nodeToDelete == null) {
             return false; // Value not found
         }
@@ -70,30 +59,88 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
         return true;
     }
 
-    @Override
-    public boolean search(T value) {
-        return searchNode(root, value) != null;
+    public boolean search(long value) {
+        return searchNode(value) != null;
     }
 
-    private Node searchNode(Node node, T value) {
-        if (node == null || value.equals(node.value)) {
-            return node;
+    private Node searchNode(long value) {
+        Node node = root;
+        while (node != null) {
+            int comparison = Long.compare(value, node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    // Replaces the contents; unsorted input is sorted and de-duplicated first
+    public void bulkLoad(long[] sorted) {
+        long[] keys = LongAVLTree.distinct(sorted);
+        int redDepth = keys.length == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(keys.length);
+        root = build(keys, 0, keys.length - 1, 0, redDepth);
+        size = keys.length;
+    }
+
+    private Node build(long[] keys, int lo, int hi, int depth, int redDepth) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(keys[mid]);
+        node.color = depth > 0 && depth == redDepth ? RED : BLACK;
+        node.left = build(keys, lo, mid - 1, depth + 1, redDepth);
+        node.right = build(keys, mid + 1, hi, depth + 1, redDepth);
+        if (node.left != null) {
+            node.left.parent = node;
         }
-        if (value.compareTo(node.value) < 0) {
-            return searchNode(node.left, value);
+        if (node.right != null) {
+            node.right.parent = node;
         }
-        return searchNode(node.right, value);
+        return node;
+    }
+
+    public BatchResult insertAll(long[] values) {
+        int applied = 0;
+        for (long value : LongAVLTree.distinct(values)) {
+            if (insert(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.length - applied);
+    }
+
+    public BatchResult deleteAll(long[] values) {
+        int applied = 0;
+        for (long value : LongAVLTree.distinct(values)) {
+            if (delete(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.length - applied);
+    }
+
+    public BatchResult containsAll(long[] values) {
+        int found = 0;
+        for (long value : values) {
+            if (search(value)) {
+                found++;
+            }
+        }
+        return new BatchResult(found, values.length - found);
     }
 
     private void rotateLeft(Node node) {
         Node rightChild = node.right;
         node.right = rightChild.left;
-
         if (rightChild.left != null) {
             rightChild.left.parent = node;
         }
         rightChild.parent = node.parent;
-
         if (node.parent == null) {
             root = rightChild;
         } else if (node == node.parent.left) {
@@ -101,19 +148,17 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
         } else {
             node.parent.right = rightChild;
         }
-
         rightChild.left = node;
         node.parent = rightChild;
     }
+
     private void rotateRight(Node node) {
         Node leftChild = node.left;
         node.left = leftChild.right;
-
         if (leftChild.right != null) {
             leftChild.right.parent = node;
         }
         leftChild.parent = node.parent;
-
         if (node.parent == null) {
             root = leftChild;
         } else if (node == node.parent.left) {
@@ -121,21 +166,16 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
         } else {
             node.parent.right = leftChild;
         }
-
         leftChild.right = node;
         node.parent = leftChild;
     }
-    private void fixViolation(Node node) {
-        Node parent = null;
-        Node grandParent = null;
 
+    private void fixViolation(Node node) {
         while (node != root && node.color == RED && node.parent.color == RED) {
-            parent = node.parent;
-            grandParent = parent.parent;
-
+            Node parent = node.parent;
+            Node grandParent = parent.parent;
             if (parent == grandParent.left) {
                 Node uncle = grandParent.right;
-
                 if (uncle != null && uncle.color == RED) {
                     grandParent.color = RED;
                     parent.color = BLACK;
@@ -155,7 +195,6 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
                 }
             } else {
                 Node uncle = grandParent.left;
-
                 if (uncle != null && uncle.color == RED) {
                     grandParent.color = RED;
                     parent.color = BLACK;
@@ -175,64 +214,37 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
                 }
             }
         }
-        root.color = BLACK; // Ensure the root is always black  
-}
-    
-    private void inOrderTraversal(Node node) {
-        if (node != null) {
-            inOrderTraversal(node.left);
-            System.out.print(node.value + " ");
-            inOrderTraversal(node.right);
-        }
-    }
-    private void preOrderTraversal(Node node) {
-        if (node != null) {
-            System.out.print(node.value + " ");
-            preOrderTraversal(node.left);
-            preOrderTraversal(node.right);
-        }
+        root.color = BLACK; // Ensure the root is always black
     }
-    private Node getMinimum(Node node) {
-        while (node.left != null) {
-            node = node.left;
-        }
-        return node;
-    }
-    // private Node getMaximum(Node node) {
-    //     while (node.right != null) {
-    //         node = node.right;
-    //     }
-    //     return node;
-    // }
-    
-    private void postOrderTraversal(Node node) {
-        if (node != null) {
-            postOrderTraversal(node.left);
-            postOrderTraversal(node.right);
-            System.out.print(node.value + " ");
-        }
-    }
-   private void deleteNode(Node node) {
-        
-        Node replacement = null;
-        Node child = null;
 
+    private void deleteNode(Node node) {
         if (node.left != null && node.right != null) {
-            replacement = getMinimum(node.right);
+            Node replacement = node.right;
+            while (replacement.left != null) {
+                replacement = replacement.left;
+            }
             node.value = replacement.value;
             node = replacement;
         }
+        Node child = node.left != null ? node.left : node.right;
 
-        if (node.left != null) {
-            child = node.left;
-        } else {
-            child = node.right;
+        if (child == null && node.parent != null) {
+            // A black leaf is fixed up in place and unlinked afterwards
+            if (node.color == BLACK) {
+                fixAfterDeletion(node);
+            }
+            if (node == node.parent.left) {
+                node.parent.left = null;
+            } else {
+                node.parent.right = null;
+            }
+            node.parent = null;
+            return;
         }
 
         if (child != null) {
             child.parent = node.parent;
         }
-
         if (node.parent == null) {
             root = child;
         } else if (node == node.parent.left) {
@@ -240,17 +252,15 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
         } else {
             node.parent.right = child;
         }
-
         if (node.color == BLACK) {
             fixAfterDeletion(child);
         }
     }
+
     private void fixAfterDeletion(Node node) {
-        // If node is null, we can't fix anything
         if (node == null) {
             return;
         }
-
         while (node != root && isBlack(node)) {
             if (node == getLeft(node.parent)) {
                 Node sibling = getRight(node.parent);
@@ -304,7 +314,7 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
         }
         setBlack(node);
     }
-    // Add these helper methods
+
     private boolean isBlack(Node node) {
         return node == null || node.color == BLACK;
     }
@@ -336,32 +346,54 @@ public class RedBlackTree<T extends Comparable<T>> implements SelfBalanceTreeInt
     public int getSize() {
         return size;
     }
-    public Node getRoot() {
-        return root;
-    }
+
     public int getHeight() {
         return getHeight(root);
     }
-    public int getHeight(Node node) {
+
+    private int getHeight(Node node) {
         if (node == null) {
             return 0;
         }
         return Math.max(getHeight(node.left), getHeight(node.right)) + 1;
     }
-    @Override
+
     public void traverseInOrder() {
         inOrderTraversal(root);
         System.out.println();
     }
-    @Override
+
+    private void inOrderTraversal(Node node) {
+        if (node != null) {
+            inOrderTraversal(node.left);
+            System.out.print(node.value + " ");
+            inOrderTraversal(node.right);
+        }
+    }
+
     public void traversePreOrder() {
         preOrderTraversal(root);
         System.out.println();
     }
-    @Override
+
+    private void preOrderTraversal(Node node) {
+        if (node != null) {
+            System.out.print(node.value + " ");
+            preOrderTraversal(node.left);
+            preOrderTraversal(node.right);
+        }
+    }
+
     public void traversePostOrder() {
         postOrderTraversal(root);
         System.out.println();
     }
 
+    private void postOrderTraversal(Node node) {
+        if (node != null) {
+            postOrderTraversal(node.left);
+            postOrderTraversal(node.right);
+            System.out.print(node.value + " ");
+        }
+    }
 }
@@ -1,6 +1,9 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+package selfbalance;
+
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
@@ -14,43 +17,41 @@ public class Main {
     }
 
     public void readFromFile(String filePath) {
-        int count = 0;
-        int existingCount = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (selfBalanceTree.insert(line.trim())) {
-                    count++;
-                } else {
-                    existingCount++;
-                }
+        try {
+            FileIngestor.Result read = readKeys(filePath);
+            String[] keys = read.getKeys();
+            long count;
+            if (selfBalanceTree.getSize() == 0) {
+                // Empty tree: the keys come sorted and distinct, so it is built in O(n)
+                selfBalanceTree.bulkLoad(keys);
+                count = selfBalanceTree.getSize();
+            } else {
+                count = selfBalanceTree.insertAll(Arrays.asList(keys)).getApplied();
             }
-            System.out.println(GREEN+"Inserted: " + count + RED+ ", Already exists: " + existingCount + RESET);
+            System.out.println(GREEN+"Inserted: " + count + RED+ ", Already exists: " + (read.getLines() - count) + RESET);
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
         }
     }
     public void deleteFromFile(String filePath) {
-        int count = 0;
-        int existingCount = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (selfBalanceTree.delete(line.trim())) {
-                    count++;
-                } else {
-                    existingCount++;
-                }
-            }
-            System.out.println("Deleted: " + count + ", Not found: " + existingCount);
+        try {
+            FileIngestor.Result read = readKeys(filePath);
+            int deleted = selfBalanceTree.deleteAll(Arrays.asList(read.getKeys())).getApplied();
+            System.out.println("Deleted: " + deleted + ", Not found: " + (read.getLines() - deleted));
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
         }
     }
+    private static FileIngestor.Result readKeys(String filePath) throws IOException {
+        FileIngestor.Result read = new FileIngestor().read(Paths.get(filePath), (bytesRead, totalBytes) ->
+                System.out.print("\rRead " + (totalBytes == 0 ? 100 : bytesRead * 100 / totalBytes) + "%"));
+        System.out.println("\rRead " + read);
+        return read;
+    }
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
-        System.out.println("Please choose the type of tree you want to create \n1-AVL\n2-RedBlack: ");
+        System.out.println("Please choose the type of tree you want to create \n1-AVL\n2-RedBlack\n3-AVL (array-backed)\n4-B+ tree (disk-backed)\n5-B-tree (in-memory): ");
         int choice = scanner.nextInt();
 
         SelfBalanceTreeInterface<String> selfBalanceTree ;
@@ -62,6 +63,24 @@ public class Main {
             case 2:
                 selfBalanceTree = new RedBlackTree<>();
                 break;
+            case 3:
+                selfBalanceTree = new ArrayAVLTree<>();
+                break;
+            case 4:
+                scanner.nextLine(); // Consume newline
+                System.out.println("Enter B+ tree file path: ");
+                String treePath = scanner.nextLine();
+                try {
+                    selfBalanceTree = new BPlusTree<>(Paths.get(treePath), KeyCodec.STRING);
+                } catch (IOException e) {
+                    System.err.println("Error opening B+ tree file: " + e.getMessage());
+                    scanner.close();
+                    return;
+                }
+                break;
+            case 5:
+                selfBalanceTree = new BTree<>();
+                break;
             default:
                 System.out.println("Invalid choice");
                 scanner.close();
@@ -79,6 +98,8 @@ public class Main {
             System.out.println("7. Get the height of the tree");
             System.out.println("8. Get the size of the tree");
             System.out.println("9. Exit");
+            System.out.println("10. Save a snapshot to file");
+            System.out.println("11. Load a snapshot from file");
             int operation = scanner.nextInt();
             scanner.nextLine(); // Consume newline
             switch (operation) {
@@ -152,8 +173,36 @@ public class Main {
                     break;
                 case 9:
                     System.out.println("Exiting...");
+                    if (selfBalanceTree instanceof Closeable) {
+                        // Disk-backed trees write their cached pages back on close
+                        try {
+                            ((Closeable) selfBalanceTree).close();
+                        } catch (IOException e) {
+                            System.err.println("Error closing tree: " + e.getMessage());
+                        }
+                    }
                     scanner.close();
                     break;
+                case 10:
+                    System.out.println("Enter snapshot file path: ");
+                    String savePath = scanner.nextLine();
+                    try {
+                        selfBalanceTree.save(Paths.get(savePath));
+                        System.out.println(GREEN + "Saved " + selfBalanceTree.getSize() + " keys" + RESET);
+                    } catch (IOException e) {
+                        System.err.println("Error writing snapshot: " + e.getMessage());
+                    }
+                    break;
+                case 11:
+                    System.out.println("Enter snapshot file path: ");
+                    String loadPath = scanner.nextLine();
+                    try {
+                        selfBalanceTree.load(Paths.get(loadPath), KeyCodec.STRING);
+                        System.out.println(GREEN + "Loaded " + selfBalanceTree.getSize() + " keys" + RESET);
+                    } catch (IOException e) {
+                        System.err.println("Error reading snapshot: " + e.getMessage());
+                    }
+                    break;
                 default:
                     System.out.println("Invalid operation");
             }
@@ -0,0 +1,475 @@
+package selfbalance;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Red-black tree of long keys whose nodes live outside the Java heap, so a
+// large tree is a handful of direct buffers instead of millions of objects.
+//
+// Each node is a 20 byte record: key (8), left (4), right (4) and parent (4).
+// Links are record indices, and the colour sits in the top bit of the parent
+// word. Record 0 stays all zero and plays the black null leaf. Records are
+// spread over fixed-size direct buffers so the tree can outgrow 2 GB, and
+// deleted records are chained through their left word for reuse.
+public class OffHeapRedBlackTree {
+    private static final int NIL = 0;
+    private static final int RECORD_SIZE = 20;
+    private static final int KEY = 0;
+    private static final int LEFT = 8;
+    private static final int RIGHT = 12;
+    private static final int PARENT = 16;
+    private static final int RED_BIT = 0x80000000;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int root = NIL;
+    private int size = 0;
+    private int nextUnused = 1;
+    private int freeList = NIL;
+
+    public OffHeapRedBlackTree() {
+        clear();
+    }
+
+    // Drops every record; the direct buffers are released by the collector
+    public void clear() {
+        chunks = new ByteBuffer[] {newChunk()};
+        root = NIL;
+        size = 0;
+        nextUnused = 1;
+        freeList = NIL;
+    }
+
+    private static ByteBuffer newChunk() {
+        return ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer chunk(int node) {
+        return chunks[node >>> CHUNK_BITS];
+    }
+
+    private static int offset(int node) {
+        return (node & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    private long key(int node) {
+        return chunk(node).getLong(offset(node) + KEY);
+    }
+
+    private void setKey(int node, long key) {
+        chunk(node).putLong(offset(node) + KEY, key);
+    }
+
+    private int left(int node) {
+        return chunk(node).getInt(offset(node) + LEFT);
+    }
+
+    private void setLeft(int node, int child) {
+        chunk(node).putInt(offset(node) + LEFT, child);
+    }
+
+    private int right(int node) {
+        return chunk(node).getInt(offset(node) + RIGHT);
+    }
+
+    private void setRight(int node, int child) {
+        chunk(node).putInt(offset(node) + RIGHT, child);
+    }
+
+    private int parent(int node) {
+        return chunk(node).getInt(offset(node) + PARENT) & ~RED_BIT;
+    }
+
+    private void setParent(int node, int parent) {
+        ByteBuffer chunk = chunk(node);
+        int at = offset(node) + PARENT;
+        chunk.putInt(at, (chunk.getInt(at) & RED_BIT) | parent);
+    }
+
+    private boolean isRed(int node) {
+        return (chunk(node).getInt(offset(node) + PARENT) & RED_BIT) != 0;
+    }
+
+    private boolean isBlack(int node) {
+        return !isRed(node);
+    }
+
+    private void setColor(int node, boolean red) {
+        if (node == NIL) {
+            return; // The shared null leaf is always black
+        }
+        ByteBuffer chunk = chunk(node);
+        int at = offset(node) + PARENT;
+        int word = chunk.getInt(at);
+        chunk.putInt(at, red ? word | RED_BIT : word & ~RED_BIT);
+    }
+
+    private void setBlack(int node) {
+        setColor(node, false);
+    }
+
+    private void setRed(int node) {
+        setColor(node, true);
+    }
+
+    private int newNode(long key, boolean red) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            if (nextUnused < 0) {
+                throw new IllegalStateException("Off-heap tree is full");
+            }
+            if ((nextUnused >>> CHUNK_BITS) == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = newChunk();
+            }
+            node = nextUnused++;
+        }
+        setKey(node, key);
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        chunk(node).putInt(offset(node) + PARENT, red ? RED_BIT : 0);
+        return node;
+    }
+
+    private void releaseNode(int node) {
+        setLeft(node, freeList);
+        freeList = node;
+    }
+
+    public boolean insert(long value) {
+        int parent = NIL;
+        int current = root;
+        int comparison = 0;
+        while (current != NIL) {
+            parent = current;
+            comparison = Long.compare(value, key(current));
+            if (comparison < 0) {
+                current = left(current);
+            } else if (comparison > 0) {
+                current = right(current);
+            } else {
+                return false; // Duplicate value
+            }
+        }
+        int newNode = newNode(value, true); // New nodes are always red
+        setParent(newNode, parent);
+        if (parent == NIL) {
+            root = newNode;
+        } else if (comparison < 0) {
+            setLeft(parent, newNode);
+        } else {
+            setRight(parent, newNode);
+        }
+        fixViolation(newNode);
+        size++;
+        return true;
+    }
+
+    public boolean delete(long value) {
+        int nodeToDelete = searchNode(value);
+        if (nodeToDelete == NIL) {
+            return false; // Value not found
+        }
+        deleteNode(nodeToDelete);
+        size--;
+        return true;
+    }
+
+    public boolean search(long value) {
+        return searchNode(value) != NIL;
+    }
+
+    private int searchNode(long value) {
+        int node = root;
+        while (node != NIL) {
+            int comparison = Long.compare(value, key(node));
+            if (comparison < 0) {
+                node = left(node);
+            } else if (comparison > 0) {
+                node = right(node);
+            } else {
+                return node;
+            }
+        }
+        return NIL;
+    }
+
+    // Replaces the contents; unsorted input is sorted and de-duplicated first
+    public void bulkLoad(long[] sorted) {
+        long[] keys = LongAVLTree.distinct(sorted);
+        clear();
+        int redDepth = keys.length == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(keys.length);
+        root = build(keys, 0, keys.length - 1, 0, redDepth);
+        size = keys.length;
+    }
+
+    private int build(long[] keys, int lo, int hi, int depth, int redDepth) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        int node = newNode(keys[mid], depth > 0 && depth == redDepth);
+        int leftChild = build(keys, lo, mid - 1, depth + 1, redDepth);
+        int rightChild = build(keys, mid + 1, hi, depth + 1, redDepth);
+        setLeft(node, leftChild);
+        setRight(node, rightChild);
+        if (leftChild != NIL) {
+            setParent(leftChild, node);
+        }
+        if (rightChild != NIL) {
+            setParent(rightChild, node);
+        }
+        return node;
+    }
+
+    private void rotateLeft(int node) {
+        int rightChild = right(node);
+        int parent = parent(node);
+        setRight(node, left(rightChild));
+        if (left(rightChild) != NIL) {
+            setParent(left(rightChild), node);
+        }
+        setParent(rightChild, parent);
+        if (parent == NIL) {
+            root = rightChild;
+        } else if (node == left(parent)) {
+            setLeft(parent, rightChild);
+        } else {
+            setRight(parent, rightChild);
+        }
+        setLeft(rightChild, node);
+        setParent(node, rightChild);
+    }
+
+    private void rotateRight(int node) {
+        int leftChild = left(node);
+        int parent = parent(node);
+        setLeft(node, right(leftChild));
+        if (right(leftChild) != NIL) {
+            setParent(right(leftChild), node);
+        }
+        setParent(leftChild, parent);
+        if (parent == NIL) {
+            root = leftChild;
+        } else if (node == left(parent)) {
+            setLeft(parent, leftChild);
+        } else {
+            setRight(parent, leftChild);
+        }
+        setRight(leftChild, node);
+        setParent(node, leftChild);
+    }
+
+    private void fixViolation(int node) {
+        while (node != root && isRed(node) && isRed(parent(node))) {
+            int parent = parent(node);
+            int grandParent = parent(parent);
+
+            if (parent == left(grandParent)) {
+                int uncle = right(grandParent);
+                if (isRed(uncle)) {
+                    setRed(grandParent);
+                    setBlack(parent);
+                    setBlack(uncle);
+                    node = grandParent;
+                } else {
+                    if (node == right(parent)) {
+                        rotateLeft(parent);
+                        node = parent;
+                        parent = parent(node);
+                    }
+                    rotateRight(grandParent);
+                    boolean tempColor = isRed(parent);
+                    setColor(parent, isRed(grandParent));
+                    setColor(grandParent, tempColor);
+                    node = parent;
+                }
+            } else {
+                int uncle = left(grandParent);
+                if (isRed(uncle)) {
+                    setRed(grandParent);
+                    setBlack(parent);
+                    setBlack(uncle);
+                    node = grandParent;
+                } else {
+                    if (node == left(parent)) {
+                        rotateRight(parent);
+                        node = parent;
+                        parent = parent(node);
+                    }
+                    rotateLeft(grandParent);
+                    boolean tempColor = isRed(parent);
+                    setColor(parent, isRed(grandParent));
+                    setColor(grandParent, tempColor);
+                    node = parent;
+                }
+            }
+        }
+        setBlack(root); // Ensure the root is always black
+    }
+
+    private void deleteNode(int node) {
+        if (left(node) != NIL && right(node) != NIL) {
+            int replacement = right(node);
+            while (left(replacement) != NIL) {
+                replacement = left(replacement);
+            }
+            setKey(node, key(replacement));
+            node = replacement;
+        }
+        int child = left(node) != NIL ? left(node) : right(node);
+        int parent = parent(node);
+
+        if (child == NIL && parent != NIL) {
+            // A black leaf is fixed up in place and unlinked afterwards
+            if (isBlack(node)) {
+                fixAfterDeletion(node);
+            }
+            parent = parent(node);
+            if (node == left(parent)) {
+                setLeft(parent, NIL);
+            } else {
+                setRight(parent, NIL);
+            }
+            releaseNode(node);
+            return;
+        }
+
+        if (child != NIL) {
+            setParent(child, parent);
+        }
+        if (parent == NIL) {
+            root = child;
+        } else if (node == left(parent)) {
+            setLeft(parent, child);
+        } else {
+            setRight(parent, child);
+        }
+        boolean removedBlack = isBlack(node);
+        releaseNode(node);
+        if (removedBlack && child != NIL) {
+            fixAfterDeletion(child);
+        }
+    }
+
+    private void fixAfterDeletion(int node) {
+        while (node != root && isBlack(node)) {
+            int parent = parent(node);
+            if (node == left(parent)) {
+                int sibling = right(parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(parent);
+                    rotateLeft(parent);
+                    sibling = right(parent);
+                }
+                if (isBlack(left(sibling)) && isBlack(right(sibling))) {
+                    setRed(sibling);
+                    node = parent;
+                } else {
+                    if (isBlack(right(sibling))) {
+                        setBlack(left(sibling));
+                        setRed(sibling);
+                        rotateRight(sibling);
+                        sibling = right(parent);
+                    }
+                    setColor(sibling, isRed(parent));
+                    setBlack(parent);
+                    setBlack(right(sibling));
+                    rotateLeft(parent);
+                    node = root;
+                }
+            } else {
+                int sibling = left(parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(parent);
+                    rotateRight(parent);
+                    sibling = left(parent);
+                }
+                if (isBlack(right(sibling)) && isBlack(left(sibling))) {
+                    setRed(sibling);
+                    node = parent;
+                } else {
+                    if (isBlack(left(sibling))) {
+                        setBlack(right(sibling));
+                        setRed(sibling);
+                        rotateLeft(sibling);
+                        sibling = left(parent);
+                    }
+                    setColor(sibling, isRed(parent));
+                    setBlack(parent);
+                    setBlack(left(sibling));
+                    rotateRight(parent);
+                    node = root;
+                }
+            }
+        }
+        setBlack(node);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Bytes of off-heap memory currently reserved for node records
+    public long getAllocatedBytes() {
+        return (long) chunks.length * CHUNK_RECORDS * RECORD_SIZE;
+    }
+
+    public int getHeight() {
+        return getHeight(root);
+    }
+
+    private int getHeight(int node) {
+        if (node == NIL) {
+            return 0;
+        }
+        return Math.max(getHeight(left(node)), getHeight(right(node))) + 1;
+    }
+
+    public void traverseInOrder() {
+        inOrderTraversal(root);
+        System.out.println();
+    }
+
+    private void inOrderTraversal(int node) {
+        if (node != NIL) {
+            inOrderTraversal(left(node));
+            System.out.print(key(node) + " ");
+            inOrderTraversal(right(node));
+        }
+    }
+
+    public void traversePreOrder() {
+        preOrderTraversal(root);
+        System.out.println();
+    }
+
+    private void preOrderTraversal(int node) {
+        if (node != NIL) {
+            System.out.print(key(node) + " ");
+            preOrderTraversal(left(node));
+            preOrderTraversal(right(node));
+        }
+    }
+
+    public void traversePostOrder() {
+        postOrderTraversal(root);
+        System.out.println();
+    }
+
+    private void postOrderTraversal(int node) {
+        if (node != NIL) {
+            postOrderTraversal(left(node));
+            postOrderTraversal(right(node));
+            System.out.print(key(node) + " ");
+        }
+    }
+}
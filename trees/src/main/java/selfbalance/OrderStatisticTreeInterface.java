@@ -0,0 +1,13 @@
+package selfbalance;
+
+// Trees that keep subtree sizes and can answer positional queries in O(log n)
+public interface OrderStatisticTreeInterface<T extends Comparable<T>> extends SelfBalanceTreeInterface<T> {
+    // Number of keys strictly less than value
+    int rank(T value);
+
+    // Key at the given zero-based position in ascending order
+    T select(int index);
+
+    // Number of keys between lo and hi, both inclusive
+    int countRange(T lo, T hi);
+}
@@ -0,0 +1,484 @@
+package selfbalance;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+
+// AVL tree with immutable nodes. A write copies only the nodes on the path it
+// touches (plus the ones its rotations rebuild) and publishes the new root
+// through a volatile field, so every root ever published stays a valid tree.
+// Readers take the current root once and work on it without locks; snapshot()
+// hands out such a root in O(1). Writers are serialised among themselves.
+// Versions nobody references any more are reclaimed by the GC.
+public class PersistentAVLTree<T extends Comparable<T>> implements OrderStatisticTreeInterface<T> {
+    static final class Node<T> {
+        final T value;
+        final Node<T> left;
+        final Node<T> right;
+        final int height;
+        final int count; // Nodes in this subtree, for rank/select
+
+        Node(T value, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.count = count(left) + count(right) + 1;
+        }
+    }
+
+    private volatile Node<T> root;
+
+    // Set by the recursive insert/delete when the tree actually changed;
+    // only touched by the writer holding the monitor
+    private boolean modified = false;
+    private int batchApplied = 0;
+
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    private PersistentAVLTree(Node<T> root) {
+        this.root = root;
+    }
+
+    // Point-in-time copy of the tree in O(1): the two trees share all nodes,
+    // and later writes to either one copy paths instead of changing them
+    public PersistentAVLTree<T> snapshot() {
+        return new PersistentAVLTree<>(root);
+    }
+
+    @Override
+    public synchronized boolean insert(T value) {
+        modified = false;
+        Node<T> updated = insert(root, value);
+        if (!modified) return false; // Avoid duplicates
+        root = updated;
+        return true;
+    }
+
+    private Node<T> insert(Node<T> current, T value) {
+        if (current == null) {
+            modified = true;
+            return new Node<>(value, null, null);
+        }
+        int comparison = value.compareTo(current.value);
+        if (comparison < 0) {
+            Node<T> left = insert(current.left, value);
+            return modified ? balance(current.value, left, current.right) : current;
+        } else if (comparison > 0) {
+            Node<T> right = insert(current.right, value);
+            return modified ? balance(current.value, current.left, right) : current;
+        }
+        return current; // Already present, nothing copied
+    }
+
+    @Override
+    public boolean search(T value) {
+        Node<T> current = root;
+        while (current != null) {
+            int comparison = value.compareTo(current.value);
+            if (comparison < 0) {
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean delete(T value) {
+        modified = false;
+        Node<T> updated = delete(root, value);
+        if (!modified) return false; // Not found
+        root = updated;
+        return true;
+    }
+
+    private Node<T> delete(Node<T> current, T key) {
+        if (current == null) {
+            return null;
+        }
+        int comparison = key.compareTo(current.value);
+        if (comparison < 0) {
+            Node<T> left = delete(current.left, key);
+            return modified ? balance(current.value, left, current.right) : current;
+        } else if (comparison > 0) {
+            Node<T> right = delete(current.right, key);
+            return modified ? balance(current.value, current.left, right) : current;
+        }
+        modified = true;
+        if (current.left == null) {
+            return current.right;
+        }
+        if (current.right == null) {
+            return current.left;
+        }
+        return balance(getPredecessor(current.left).value, deleteMax(current.left), current.right);
+    }
+
+    private Node<T> deleteMax(Node<T> node) {
+        if (node.right == null) {
+            return node.left;
+        }
+        return balance(node.value, node.left, deleteMax(node.right));
+    }
+
+    @Override
+    public synchronized void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        root = build(keys, 0, keys.length - 1);
+    }
+
+    private Node<T> build(T[] keys, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        return new Node<>(keys[mid], build(keys, lo, mid - 1), build(keys, mid + 1, hi));
+    }
+
+    // The batch is merged into a new version by split/join and published once,
+    // so readers see either none or all of it
+    @Override
+    public synchronized BatchResult insertAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        root = insertAll(root, keys, 0, keys.length);
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    private Node<T> insertAll(Node<T> node, T[] keys, int lo, int hi) {
+        if (lo >= hi) {
+            return node;
+        }
+        if (node == null) {
+            batchApplied += hi - lo;
+            return build(keys, lo, hi - 1);
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node<T> left = insertAll(node.left, keys, lo, split);
+        Node<T> right = insertAll(node.right, keys, present ? split + 1 : split, hi);
+        if (left == node.left && right == node.right) {
+            return node; // Nothing new below, keep sharing the old subtree
+        }
+        return join(left, node.value, right);
+    }
+
+    @Override
+    public synchronized BatchResult deleteAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        root = deleteAll(root, keys, 0, keys.length);
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    private Node<T> deleteAll(Node<T> node, T[] keys, int lo, int hi) {
+        if (node == null || lo >= hi) {
+            return node;
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node<T> left = deleteAll(node.left, keys, lo, split);
+        Node<T> right = deleteAll(node.right, keys, present ? split + 1 : split, hi);
+        if (present) {
+            batchApplied++;
+            return join2(left, right);
+        }
+        if (left == node.left && right == node.right) {
+            return node;
+        }
+        return join(left, node.value, right);
+    }
+
+    // Joins left < value < right into one AVL tree, copying only the spine it walks
+    private Node<T> join(Node<T> left, T value, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            return balance(left.value, left.left, join(left.right, value, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            return balance(right.value, join(left, value, right.left), right.right);
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private Node<T> join2(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        return join(deleteMax(left), getPredecessor(left).value, right);
+    }
+
+    static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    static int count(Node<?> node) {
+        return node == null ? 0 : node.count;
+    }
+
+    // Builds the node (value, left, right), rotating when the children's
+    // heights differ by two; every rotation allocates fresh nodes
+    private Node<T> balance(T value, Node<T> left, Node<T> right) {
+        int balance = height(right) - height(left);
+        if (balance > 1) { // Right heavy
+            if (height(right.left) > height(right.right)) { // RL
+                Node<T> pivot = right.left;
+                return new Node<>(pivot.value, new Node<>(value, left, pivot.left),
+                        new Node<>(right.value, pivot.right, right.right));
+            }
+            return new Node<>(right.value, new Node<>(value, left, right.left), right.right); // RR
+        }
+        if (balance < -1) { // Left heavy
+            if (height(left.right) > height(left.left)) { // LR
+                Node<T> pivot = left.right;
+                return new Node<>(pivot.value, new Node<>(left.value, left.left, pivot.left),
+                        new Node<>(value, pivot.right, right));
+            }
+            return new Node<>(left.value, left.left, new Node<>(value, left.right, right)); // LL
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private Node<T> getPredecessor(Node<T> node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    @Override
+    public void traverseInOrder() {
+        traverseInOrder(root);
+        System.out.println();
+    }
+
+    private void traverseInOrder(Node<T> node) {
+        if (node == null) return;
+        traverseInOrder(node.left);
+        System.out.print(node.value + " ");
+        traverseInOrder(node.right);
+    }
+
+    @Override
+    public void traversePreOrder() {
+        traversePreOrder(root);
+        System.out.println();
+    }
+
+    private void traversePreOrder(Node<T> node) {
+        if (node == null) return;
+        System.out.print(node.value + " ");
+        traversePreOrder(node.left);
+        traversePreOrder(node.right);
+    }
+
+    @Override
+    public void traversePostOrder() {
+        traversePostOrder(root);
+        System.out.println();
+    }
+
+    private void traversePostOrder(Node<T> node) {
+        if (node == null) return;
+        traversePostOrder(node.left);
+        traversePostOrder(node.right);
+        System.out.print(node.value + " ");
+    }
+
+    @Override
+    public int getHeight() {
+        return height(root);
+    }
+
+    @Override
+    public int getSize() {
+        return count(root);
+    }
+
+    @Override
+    public int rank(T value) {
+        return countBelow(root, value, false);
+    }
+
+    @Override
+    public T select(int index) {
+        Node<T> node = root;
+        if (index < 0 || index >= count(node)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count(node));
+        }
+        while (true) {
+            int leftCount = count(node.left);
+            if (index < leftCount) {
+                node = node.left;
+            } else if (index > leftCount) {
+                index -= leftCount + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    @Override
+    public int countRange(T lo, T hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        Node<T> version = root; // Both bounds against the same version
+        return countBelow(version, hi, true) - countBelow(version, lo, false);
+    }
+
+    private int countBelow(Node<T> node, T value, boolean inclusive) {
+        int below = 0;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                below += count(node.left) + 1;
+                node = node.right;
+            } else {
+                return below + count(node.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return below;
+    }
+
+    @Override
+    public T first() {
+        Node<T> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T last() {
+        Node<T> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    private T below(T value, boolean inclusive) {
+        Node<T> node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison > 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    private T above(T value, boolean inclusive) {
+        Node<T> node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    // Iterators walk the version current when they were created, so they
+    // never fail and never see later writes
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return new Cursor().startRange(root, from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Node<T> version = root;
+        return new Cursor().start(version, count(version));
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        Node<T> version = root;
+        return new Cursor().start(version, count(version));
+    }
+
+    private final class Cursor extends TreeCursor<Node<T>, T> {
+        @Override
+        protected Node<T> left(Node<T> node) {
+            return node.left;
+        }
+
+        @Override
+        protected Node<T> right(Node<T> node) {
+            return node.right;
+        }
+
+        @Override
+        protected T value(Node<T> node) {
+            return node.value;
+        }
+
+        @Override
+        protected int modCount() {
+            return 0; // Nodes never change
+        }
+
+        @Override
+        protected long subtreeSize(Node<T> node) {
+            return count(node);
+        }
+
+        @Override
+        protected TreeCursor<Node<T>, T> newCursor() {
+            return new Cursor();
+        }
+    }
+}
@@ -0,0 +1,1189 @@
+package selfbalance;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+public class RedBlackTree<T extends Comparable<T>> implements OrderStatisticTreeInterface<T>, BoundedSearch<T> {
+    // Red-Black Tree properties
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    private class Node {
+        T value;
+        boolean color;
+        Node left, right, parent;
+        int count; // Nodes in this subtree, for rank/select
+        int height; // Longest path down to a leaf, counting this node
+
+        Node(T value) {
+            this.value = value;
+            this.count = 1;
+            this.height = 1;
+            this.color = RED; // New nodes are always red
+            this.left = null;
+            this.right = null;
+            this.parent = null;
+        }
+    }
+
+    private Node root;
+    private int size;
+    private int modCount; // Structural changes, for fail-fast iterators
+    private TreeStats<T> stats; // Valid while statsModCount == modCount
+    private int statsModCount;
+
+    // Hot-path counters, null unless -Dselfbalance.metrics=true
+    private final TreeMetrics metrics = TreeMetrics.ENABLED ? new TreeMetrics() : null;
+
+    public RedBlackTree() {
+        root = null;
+        size = 0;
+    }
+
+    @Override
+    public boolean insert(T value) {
+        Node newNode = new Node(value);
+        if (root == null) {
+            root = newNode;
+        } else {
+            Node parent = null;
+            Node current = root;
+            int comparison = 0;
+            int depth = 0;
+
+            while (current != null) {
+                parent = current;
+                if (TreeMetrics.ENABLED) depth++;
+                comparison = value.compareTo(current.value);
+                if (comparison < 0) {
+                    current = current.left;
+                } else if (comparison > 0) {
+                    current = current.right;
+                } else {
+                    if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.INSERT, depth);
+                    return false; // Duplicate value
+                }
+            }
+            if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.INSERT, depth);
+
+            newNode.parent = parent;
+
+            // The last compare of the descent already says which side
+            if (comparison < 0) {
+                parent.left = newNode;
+            } else {
+                parent.right = newNode;
+            }
+            addToCounts(parent, 1);
+        }
+        fixViolation(newNode);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean delete(T value) {
+        Node nodeToDelete = searchNode(root, value, TreeMetrics.Operation.DELETE);
+        if (nodeToDelete == null) {
+            return false; // Value not found
+        }
+        deleteNode(nodeToDelete);
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean search(T value) {
+        return searchNode(root, value, TreeMetrics.Operation.SEARCH) != null;
+    }
+
+    // Iterative descent with a single three-way compare per level; the
+    // operation only says where metrics count the descent
+    private Node searchNode(Node node, T value, TreeMetrics.Operation operation) {
+        int depth = 0;
+        while (node != null) {
+            if (TreeMetrics.ENABLED) depth++;
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+        if (TreeMetrics.ENABLED) metrics.record(operation, depth);
+        return node;
+    }
+
+    // search() for readers that may race a rotation; gives up after maxSteps
+    @Override
+    public int searchWithin(T value, int maxSteps) {
+        Node node = root;
+        int steps = 0;
+        while (node != null) {
+            if (steps++ == maxSteps) {
+                return GAVE_UP;
+            }
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+        return node != null ? steps : -steps;
+    }
+
+    @Override
+    public void recordSearch(int comparisons) {
+        if (TreeMetrics.ENABLED) metrics.record(TreeMetrics.Operation.SEARCH, comparisons);
+    }
+
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        // Only the deepest level can be incomplete, so colouring it red keeps
+        // the black height equal on every path
+        int redDepth = keys.length == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(keys.length);
+        root = build(keys, 0, keys.length - 1, 0, redDepth);
+        size = keys.length;
+        modCount++;
+    }
+
+    private Node build(T[] keys, int lo, int hi, int depth, int redDepth) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node node = new Node(keys[mid]);
+        node.color = depth > 0 && depth == redDepth ? RED : BLACK;
+        node.left = build(keys, lo, mid - 1, depth + 1, redDepth);
+        node.right = build(keys, mid + 1, hi, depth + 1, redDepth);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+        node.count = hi - lo + 1;
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        return node;
+    }
+
+    // State threaded through the batch recursion: keys applied so far, black
+    // height of the subtree returned last, and the node detached by splitLast
+    private int batchApplied;
+    private int joinBlackHeight;
+    private Node lastNode;
+
+    @Override
+    public BatchResult insertAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        setRoot(insertAll(root, blackHeight(root), keys, 0, keys.length));
+        size += batchApplied;
+        modCount++;
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    // Union of the subtree with the sorted keys[lo..hi): the keys are split
+    // around each node on the way down and the halves joined on the way up
+    private Node insertAll(Node node, int nodeBlack, T[] keys, int lo, int hi) {
+        if (lo >= hi) {
+            joinBlackHeight = nodeBlack;
+            return node;
+        }
+        if (node == null) {
+            int count = hi - lo;
+            batchApplied += count;
+            Node built = build(keys, lo, hi - 1, 0, 31 - Integer.numberOfLeadingZeros(count));
+            joinBlackHeight = blackHeight(built);
+            return built;
+        }
+        int childBlack = nodeBlack - (isBlack(node) ? 1 : 0);
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node left = insertAll(node.left, childBlack, keys, lo, split);
+        int leftBlack = joinBlackHeight;
+        Node right = insertAll(node.right, childBlack, keys, present ? split + 1 : split, hi);
+        return join(left, leftBlack, node, right, joinBlackHeight);
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<T> values) {
+        T[] keys = SortedKeys.distinct(SortedKeys.toArray(values));
+        batchApplied = 0;
+        setRoot(deleteAll(root, blackHeight(root), keys, 0, keys.length));
+        size -= batchApplied;
+        modCount++;
+        return new BatchResult(batchApplied, values.size() - batchApplied);
+    }
+
+    // Difference of the subtree and the sorted keys[lo..hi)
+    private Node deleteAll(Node node, int nodeBlack, T[] keys, int lo, int hi) {
+        if (node == null || lo >= hi) {
+            joinBlackHeight = nodeBlack;
+            return node;
+        }
+        int childBlack = nodeBlack - (isBlack(node) ? 1 : 0);
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        boolean present = split < hi && keys[split].compareTo(node.value) == 0;
+        Node left = deleteAll(node.left, childBlack, keys, lo, split);
+        int leftBlack = joinBlackHeight;
+        Node right = deleteAll(node.right, childBlack, keys, present ? split + 1 : split, hi);
+        if (present) {
+            batchApplied++;
+            return join2(left, leftBlack, right, joinBlackHeight);
+        }
+        return join(left, leftBlack, node, right, joinBlackHeight);
+    }
+
+    @Override
+    public BatchResult containsAll(Collection<T> values) {
+        T[] keys = SortedKeys.sorted(SortedKeys.toArray(values));
+        int found = countPresent(root, keys, 0, keys.length);
+        return new BatchResult(found, keys.length - found);
+    }
+
+    private int countPresent(Node node, T[] keys, int lo, int hi) {
+        if (node == null || lo >= hi) {
+            return 0;
+        }
+        int split = SortedKeys.lowerBound(keys, lo, hi, node.value);
+        int end = split;
+        while (end < hi && keys[end].compareTo(node.value) == 0) {
+            end++;
+        }
+        return (end - split) + countPresent(node.left, keys, lo, split)
+                + countPresent(node.right, keys, end, hi);
+    }
+
+    // Joins left < mid < right given the black heights of both sides; the
+    // black height of the result is left in joinBlackHeight
+    private Node join(Node left, int leftBlack, Node mid, Node right, int rightBlack) {
+        if (isRed(left)) {
+            left.color = BLACK;
+            leftBlack++;
+        }
+        if (isRed(right)) {
+            right.color = BLACK;
+            rightBlack++;
+        }
+        Node joined;
+        if (leftBlack > rightBlack) {
+            joined = joinRight(left, leftBlack, mid, right, rightBlack);
+            if (isRed(joined) && isRed(joined.right)) {
+                joined.color = BLACK;
+                leftBlack++;
+            }
+            joinBlackHeight = leftBlack;
+        } else if (rightBlack > leftBlack) {
+            joined = joinLeft(left, leftBlack, mid, right, rightBlack);
+            if (isRed(joined) && isRed(joined.left)) {
+                joined.color = BLACK;
+                rightBlack++;
+            }
+            joinBlackHeight = rightBlack;
+        } else {
+            mid.color = RED;
+            joined = link(mid, left, right);
+            joinBlackHeight = leftBlack;
+        }
+        joined.parent = null;
+        return joined;
+    }
+
+    // Walks down the right spine of the taller left tree to a black node of
+    // matching black height and hangs mid there, repairing red-red on the way up
+    private Node joinRight(Node left, int leftBlack, Node mid, Node right, int rightBlack) {
+        if (isBlack(left) && leftBlack == rightBlack) {
+            mid.color = RED;
+            return link(mid, left, right);
+        }
+        int childBlack = leftBlack - (isBlack(left) ? 1 : 0);
+        link(left, left.left, joinRight(left.right, childBlack, mid, right, rightBlack));
+        if (isBlack(left) && isRed(left.right) && isRed(left.right.right)) {
+            left.right.right.color = BLACK;
+            return rotateLeftSubtree(left);
+        }
+        return left;
+    }
+
+    private Node joinLeft(Node left, int leftBlack, Node mid, Node right, int rightBlack) {
+        if (isBlack(right) && rightBlack == leftBlack) {
+            mid.color = RED;
+            return link(mid, left, right);
+        }
+        int childBlack = rightBlack - (isBlack(right) ? 1 : 0);
+        link(right, joinLeft(left, leftBlack, mid, right.left, childBlack), right.right);
+        if (isBlack(right) && isRed(right.left) && isRed(right.left.left)) {
+            right.left.left.color = BLACK;
+            return rotateRightSubtree(right);
+        }
+        return right;
+    }
+
+    // Joins left < right, using the maximum of left as the middle node
+    private Node join2(Node left, int leftBlack, Node right, int rightBlack) {
+        if (left == null) {
+            if (right != null) {
+                right.parent = null;
+            }
+            joinBlackHeight = rightBlack;
+            return right;
+        }
+        Node rest = splitLast(left, leftBlack);
+        return join(rest, joinBlackHeight, lastNode, right, rightBlack);
+    }
+
+    // Detaches the maximum of the subtree into lastNode and returns the rest
+    private Node splitLast(Node node, int nodeBlack) {
+        int childBlack = nodeBlack - (isBlack(node) ? 1 : 0);
+        if (node.right == null) {
+            lastNode = node;
+            if (node.left != null) {
+                node.left.parent = null;
+            }
+            joinBlackHeight = childBlack;
+            return node.left;
+        }
+        Node rest = splitLast(node.right, childBlack);
+        return join(node.left, childBlack, node, rest, joinBlackHeight);
+    }
+
+    private Node link(Node parent, Node left, Node right) {
+        parent.left = left;
+        parent.right = right;
+        parent.count = count(left) + count(right) + 1;
+        parent.height = Math.max(height(left), height(right)) + 1;
+        if (left != null) {
+            left.parent = parent;
+        }
+        if (right != null) {
+            right.parent = parent;
+        }
+        return parent;
+    }
+
+    // Rotations on a detached subtree; the caller links the returned root
+    private Node rotateLeftSubtree(Node node) {
+        Node rightChild = node.right;
+        link(node, node.left, rightChild.left);
+        return link(rightChild, node, rightChild.right);
+    }
+
+    private Node rotateRightSubtree(Node node) {
+        Node leftChild = node.left;
+        link(node, leftChild.right, node.right);
+        return link(leftChild, leftChild.left, node);
+    }
+
+    private void setRoot(Node node) {
+        root = node;
+        if (root != null) {
+            root.parent = null;
+            root.color = BLACK;
+        }
+    }
+
+    // Set operations below work on whole trees by split and join, in
+    // O(m log(n/m + 1)) for trees of m <= n keys. They reuse the nodes of
+    // both trees: the result replaces this tree's contents and the other
+    // tree is left empty. In parallel mode the left half of every large
+    // enough step is forked and computed on a scratch tree, so the join
+    // state threaded through the fields never crosses threads.
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    // Joins left < key < right into a new tree; both trees are left empty
+    public static <T extends Comparable<T>> RedBlackTree<T> join(RedBlackTree<T> left, T key, RedBlackTree<T> right) {
+        T leftLast = left.last();
+        T rightFirst = right.first();
+        if ((leftLast != null && leftLast.compareTo(key) >= 0)
+                || (rightFirst != null && rightFirst.compareTo(key) <= 0)) {
+            throw new IllegalArgumentException("Keys of the left tree must be below " + key
+                    + " and keys of the right tree above it");
+        }
+        RedBlackTree<T> joined = new RedBlackTree<>();
+        joined.setContents(joined.join(left.root, left.blackHeight(left.root), joined.new Node(key),
+                right.root, right.blackHeight(right.root)));
+        left.setContents(null);
+        right.setContents(null);
+        return joined;
+    }
+
+    // Moves the keys greater than or equal to key into the returned tree
+    public RedBlackTree<T> split(T key) {
+        Split parts = split(root, blackHeight(root), key);
+        RedBlackTree<T> upper = new RedBlackTree<>();
+        upper.setContents(parts.found == null ? parts.right
+                : join(null, 0, parts.found, parts.right, parts.rightBlack));
+        setContents(parts.left);
+        return upper;
+    }
+
+    public void union(RedBlackTree<T> other) {
+        union(other, false);
+    }
+
+    public void union(RedBlackTree<T> other, boolean parallel) {
+        if (other == this) {
+            return;
+        }
+        setContents(run(parallel, tree -> tree.union(root, blackHeight(root),
+                other.root, blackHeight(other.root), parallel)));
+        other.setContents(null);
+    }
+
+    public void intersection(RedBlackTree<T> other) {
+        intersection(other, false);
+    }
+
+    public void intersection(RedBlackTree<T> other, boolean parallel) {
+        if (other == this) {
+            return;
+        }
+        setContents(run(parallel, tree -> tree.intersection(root, blackHeight(root),
+                other.root, blackHeight(other.root), parallel)));
+        other.setContents(null);
+    }
+
+    // Removes the keys of other from this tree
+    public void difference(RedBlackTree<T> other) {
+        difference(other, false);
+    }
+
+    public void difference(RedBlackTree<T> other, boolean parallel) {
+        if (other == this) {
+            setContents(null);
+            return;
+        }
+        setContents(run(parallel, tree -> tree.difference(root, blackHeight(root),
+                other.root, blackHeight(other.root), parallel)));
+        other.setContents(null);
+    }
+
+    // Runs a whole set operation, inside the common pool when parallel
+    private Node run(boolean parallel, Function<RedBlackTree<T>, Node> operation) {
+        if (!parallel) {
+            return operation.apply(this);
+        }
+        return ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> operation.apply(this)));
+    }
+
+    private void setContents(Node node) {
+        setRoot(node);
+        size = count(node);
+        modCount++;
+    }
+
+    // A subtree and its black height, as handed back by a forked half
+    private final class Part {
+        final Node node;
+        final int black;
+
+        Part(Node node, int black) {
+            this.node = node;
+            this.black = black;
+        }
+    }
+
+    private ForkJoinTask<Part> forkHalf(Function<RedBlackTree<T>, Node> half) {
+        return ForkJoinTask.adapt(() -> {
+            RedBlackTree<T> worker = new RedBlackTree<>();
+            Node node = half.apply(worker);
+            return new Part(node, worker.joinBlackHeight);
+        }).fork();
+    }
+
+    private boolean forkable(Node a, Node b, boolean parallel) {
+        return parallel && count(a) + count(b) >= PARALLEL_THRESHOLD;
+    }
+
+    // A split subtree: the keys below and above the split key with their
+    // black heights, and the node that held the key itself, if any
+    private final class Split {
+        final Node left;
+        final int leftBlack;
+        final Node right;
+        final int rightBlack;
+        final Node found;
+
+        Split(Node left, int leftBlack, Node right, int rightBlack, Node found) {
+            this.left = left;
+            this.leftBlack = leftBlack;
+            this.right = right;
+            this.rightBlack = rightBlack;
+            this.found = found;
+        }
+    }
+
+    private Split split(Node node, int nodeBlack, T key) {
+        if (node == null) {
+            return new Split(null, 0, null, 0, null);
+        }
+        int childBlack = nodeBlack - (isBlack(node) ? 1 : 0);
+        Node left = node.left;
+        Node right = node.right;
+        int comparison = key.compareTo(node.value);
+        if (comparison < 0) {
+            Split parts = split(left, childBlack, key);
+            Node joined = join(parts.right, parts.rightBlack, node, right, childBlack);
+            return new Split(parts.left, parts.leftBlack, joined, joinBlackHeight, parts.found);
+        }
+        if (comparison > 0) {
+            Split parts = split(right, childBlack, key);
+            Node joined = join(left, childBlack, node, parts.left, parts.leftBlack);
+            return new Split(joined, joinBlackHeight, parts.right, parts.rightBlack, parts.found);
+        }
+        return new Split(left, childBlack, right, childBlack, node);
+    }
+
+    // a's root splits b; the halves are merged recursively and joined back
+    // around a's root, whose duplicate in b (if any) is dropped. Like the
+    // other set operations it leaves the black height of its result in
+    // joinBlackHeight
+    private Node union(Node a, int aBlack, Node b, int bBlack, boolean parallel) {
+        if (a == null || b == null) {
+            joinBlackHeight = a == null ? bBlack : aBlack;
+            return a == null ? b : a;
+        }
+        int childBlack = aBlack - (isBlack(a) ? 1 : 0);
+        Node aLeft = a.left;
+        Node aRight = a.right;
+        Split parts = split(b, bBlack, a.value);
+        ForkJoinTask<Part> leftTask = forkable(aLeft, parts.left, parallel)
+                ? forkHalf(tree -> tree.union(aLeft, childBlack, parts.left, parts.leftBlack, true)) : null;
+        Node right = union(aRight, childBlack, parts.right, parts.rightBlack, parallel);
+        int rightBlack = joinBlackHeight;
+        Part left = leftTask != null ? leftTask.join()
+                : new Part(union(aLeft, childBlack, parts.left, parts.leftBlack, parallel), joinBlackHeight);
+        return join(left.node, left.black, a, right, rightBlack);
+    }
+
+    // Same walk as union, keeping a's root only when b holds it too
+    private Node intersection(Node a, int aBlack, Node b, int bBlack, boolean parallel) {
+        if (a == null || b == null) {
+            joinBlackHeight = 0;
+            return null;
+        }
+        int childBlack = aBlack - (isBlack(a) ? 1 : 0);
+        Node aLeft = a.left;
+        Node aRight = a.right;
+        Split parts = split(b, bBlack, a.value);
+        ForkJoinTask<Part> leftTask = forkable(aLeft, parts.left, parallel)
+                ? forkHalf(tree -> tree.intersection(aLeft, childBlack, parts.left, parts.leftBlack, true)) : null;
+        Node right = intersection(aRight, childBlack, parts.right, parts.rightBlack, parallel);
+        int rightBlack = joinBlackHeight;
+        Part left = leftTask != null ? leftTask.join()
+                : new Part(intersection(aLeft, childBlack, parts.left, parts.leftBlack, parallel), joinBlackHeight);
+        if (parts.found != null) {
+            return join(left.node, left.black, a, right, rightBlack);
+        }
+        return join2(left.node, left.black, right, rightBlack);
+    }
+
+    // b's root splits a and is dropped from it; the halves lose the rest of
+    // b recursively
+    private Node difference(Node a, int aBlack, Node b, int bBlack, boolean parallel) {
+        if (a == null || b == null) {
+            joinBlackHeight = aBlack;
+            return a;
+        }
+        int childBlack = bBlack - (isBlack(b) ? 1 : 0);
+        Node bLeft = b.left;
+        Node bRight = b.right;
+        Split parts = split(a, aBlack, b.value);
+        ForkJoinTask<Part> leftTask = forkable(parts.left, bLeft, parallel)
+                ? forkHalf(tree -> tree.difference(parts.left, parts.leftBlack, bLeft, childBlack, true)) : null;
+        Node right = difference(parts.right, parts.rightBlack, bRight, childBlack, parallel);
+        int rightBlack = joinBlackHeight;
+        Part left = leftTask != null ? leftTask.join()
+                : new Part(difference(parts.left, parts.leftBlack, bLeft, childBlack, parallel), joinBlackHeight);
+        return join2(left.node, left.black, right, rightBlack);
+    }
+
+    // Number of black nodes from the node down to a leaf, counting the node
+    private int blackHeight(Node node) {
+        int blacks = 0;
+        while (node != null) {
+            if (node.color == BLACK) {
+                blacks++;
+            }
+            node = node.left;
+        }
+        return blacks;
+    }
+
+    private void rotateLeft(Node node) {
+        if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.LEFT);
+        int height = node.height;
+        Node rightChild = node.right;
+        node.right = rightChild.left;
+
+        if (rightChild.left != null) {
+            rightChild.left.parent = node;
+        }
+        rightChild.parent = node.parent;
+
+        if (node.parent == null) {
+            root = rightChild;
+        } else if (node == node.parent.left) {
+            node.parent.left = rightChild;
+        } else {
+            node.parent.right = rightChild;
+        }
+
+        rightChild.left = node;
+        node.parent = rightChild;
+        rightChild.count = node.count;
+        node.count = count(node.left) + count(node.right) + 1;
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        rightChild.height = Math.max(height(rightChild.left), height(rightChild.right)) + 1;
+        if (rightChild.height != height) {
+            updateHeights(rightChild.parent);
+        }
+    }
+    private void rotateRight(Node node) {
+        if (TreeMetrics.ENABLED) metrics.rotation(TreeMetrics.Rotation.RIGHT);
+        int height = node.height;
+        Node leftChild = node.left;
+        node.left = leftChild.right;
+
+        if (leftChild.right != null) {
+            leftChild.right.parent = node;
+        }
+        leftChild.parent = node.parent;
+
+        if (node.parent == null) {
+            root = leftChild;
+        } else if (node == node.parent.left) {
+            node.parent.left = leftChild;
+        } else {
+            node.parent.right = leftChild;
+        }
+
+        leftChild.right = node;
+        node.parent = leftChild;
+        leftChild.count = node.count;
+        node.count = count(node.left) + count(node.right) + 1;
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        leftChild.height = Math.max(height(leftChild.left), height(leftChild.right)) + 1;
+        if (leftChild.height != height) {
+            updateHeights(leftChild.parent);
+        }
+    }
+    private void fixViolation(Node node) {
+        Node parent = null;
+        Node grandParent = null;
+
+        while (node != root && node.color == RED && node.parent.color == RED) {
+            parent = node.parent;
+            grandParent = parent.parent;
+
+            if (parent == grandParent.left) {
+                Node uncle = grandParent.right;
+
+                if (uncle != null && uncle.color == RED) {
+                    grandParent.color = RED;
+                    parent.color = BLACK;
+                    uncle.color = BLACK;
+                    if (TreeMetrics.ENABLED) metrics.recolour(TreeMetrics.Operation.INSERT, 3);
+                    node = grandParent;
+                } else {
+                    if (node == parent.right) {
+                        rotateLeft(parent);
+                        node = parent;
+                        parent = node.parent;
+                    }
+                    rotateRight(grandParent);
+                    boolean tempColor = parent.color;
+                    parent.color = grandParent.color;
+                    grandParent.color = tempColor;
+                    if (TreeMetrics.ENABLED) metrics.recolour(TreeMetrics.Operation.INSERT, 2);
+                    node = parent;
+                }
+            } else {
+                Node uncle = grandParent.left;
+
+                if (uncle != null && uncle.color == RED) {
+                    grandParent.color = RED;
+                    parent.color = BLACK;
+                    uncle.color = BLACK;
+                    if (TreeMetrics.ENABLED) metrics.recolour(TreeMetrics.Operation.INSERT, 3);
+                    node = grandParent;
+                } else {
+                    if (node == parent.left) {
+                        rotateRight(parent);
+                        node = parent;
+                        parent = node.parent;
+                    }
+                    rotateLeft(grandParent);
+                    boolean tempColor = parent.color;
+                    parent.color = grandParent.color;
+                    grandParent.color = tempColor;
+                    if (TreeMetrics.ENABLED) metrics.recolour(TreeMetrics.Operation.INSERT, 2);
+                    node = parent;
+                }
+            }
+        }
+        if (TreeMetrics.ENABLED && root.color == RED) metrics.recolour(TreeMetrics.Operation.INSERT, 1);
+        root.color = BLACK; // Ensure the root is always black  
+}
+    
+    private void inOrderTraversal(Node node) {
+        if (node != null) {
+            inOrderTraversal(node.left);
+            System.out.print(node.value + " ");
+            inOrderTraversal(node.right);
+        }
+    }
+    private void preOrderTraversal(Node node) {
+        if (node != null) {
+            System.out.print(node.value + " ");
+            preOrderTraversal(node.left);
+            preOrderTraversal(node.right);
+        }
+    }
+    private Node getMinimum(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+    // private Node getMaximum(Node node) {
+    //     while (node.right != null) {
+    //         node = node.right;
+    //     }
+    //     return node;
+    // }
+    
+    private void postOrderTraversal(Node node) {
+        if (node != null) {
+            postOrderTraversal(node.left);
+            postOrderTraversal(node.right);
+            System.out.print(node.value + " ");
+        }
+    }
+   private void deleteNode(Node node) {
+        
+        Node replacement = null;
+        Node child = null;
+
+        if (node.left != null && node.right != null) {
+            replacement = getMinimum(node.right);
+            node.value = replacement.value;
+            node = replacement;
+        }
+
+        if (node.left != null) {
+            child = node.left;
+        } else {
+            child = node.right;
+        }
+
+        if (child == null && node.parent != null) {
+            // A black leaf leaves no child to carry the missing black, so it
+            // is fixed up while still in place and unlinked afterwards.
+            // It stays in place with a count of 0 while rotations run
+            node.count = 0;
+            addToCounts(node.parent, -1);
+            if (node.color == BLACK) {
+                fixAfterDeletion(node);
+            }
+            Node parent = node.parent;
+            if (node == parent.left) {
+                parent.left = null;
+            } else {
+                parent.right = null;
+            }
+            node.parent = null;
+            updateHeights(parent);
+            return;
+        }
+
+        if (child != null) {
+            child.parent = node.parent;
+        }
+
+        if (node.parent == null) {
+            root = child;
+        } else if (node == node.parent.left) {
+            node.parent.left = child;
+        } else {
+            node.parent.right = child;
+        }
+        addToCounts(node.parent, -1);
+
+        if (node.color == BLACK) {
+            fixAfterDeletion(child);
+        }
+    }
+    private void fixAfterDeletion(Node node) {
+        // If node is null, we can't fix anything
+        if (node == null) {
+            return;
+        }
+
+        while (node != root && isBlack(node)) {
+            if (node == getLeft(node.parent)) {
+                Node sibling = getRight(node.parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(node.parent);
+                    rotateLeft(node.parent);
+                    sibling = getRight(node.parent);
+                }
+                if (isBlack(getLeft(sibling)) && isBlack(getRight(sibling))) {
+                    setRed(sibling);
+                    node = node.parent;
+                } else {
+                    if (isBlack(getRight(sibling))) {
+                        setBlack(getLeft(sibling));
+                        setRed(sibling);
+                        rotateRight(sibling);
+                        sibling = getRight(node.parent);
+                    }
+                    setColor(sibling, node.parent.color);
+                    setBlack(node.parent);
+                    setBlack(getRight(sibling));
+                    rotateLeft(node.parent);
+                    node = root;
+                }
+            } else {
+                Node sibling = getLeft(node.parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(node.parent);
+                    rotateRight(node.parent);
+                    sibling = getLeft(node.parent);
+                }
+                if (isBlack(getRight(sibling)) && isBlack(getLeft(sibling))) {
+                    setRed(sibling);
+                    node = node.parent;
+                } else {
+                    if (isBlack(getLeft(sibling))) {
+                        setBlack(getRight(sibling));
+                        setRed(sibling);
+                        rotateLeft(sibling);
+                        sibling = getLeft(node.parent);
+                    }
+                    setColor(sibling, node.parent.color);
+                    setBlack(node.parent);
+                    setBlack(getLeft(sibling));
+                    rotateRight(node.parent);
+                    node = root;
+                }
+            }
+        }
+        setBlack(node);
+    }
+    private int count(Node node) {
+        return node == null ? 0 : node.count;
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    // Adjusts the subtree sizes from node up to the root, refreshing the
+    // heights on the way since the structure below node just changed
+    private void addToCounts(Node node, int delta) {
+        while (node != null) {
+            node.count += delta;
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            node = node.parent;
+        }
+    }
+
+    // Refreshes heights from node upwards after the subtree below it changed
+    // height; stops at the first node whose height stays the same, as
+    // nothing above it can change either
+    private void updateHeights(Node node) {
+        while (node != null) {
+            int height = Math.max(height(node.left), height(node.right)) + 1;
+            if (height == node.height) {
+                return;
+            }
+            node.height = height;
+            node = node.parent;
+        }
+    }
+
+    @Override
+    public int rank(T value) {
+        return countBelow(value, false);
+    }
+
+    @Override
+    public T select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node node = root;
+        while (true) {
+            int leftCount = count(node.left);
+            if (index < leftCount) {
+                node = node.left;
+            } else if (index > leftCount) {
+                index -= leftCount + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    @Override
+    public int countRange(T lo, T hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return countBelow(hi, true) - countBelow(lo, false);
+    }
+
+    // Keys less than value (or equal to it when inclusive)
+    private int countBelow(T value, boolean inclusive) {
+        Node node = root;
+        int below = 0;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0) {
+                node = node.left;
+            } else if (comparison > 0) {
+                below += count(node.left) + 1;
+                node = node.right;
+            } else {
+                return below + count(node.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return below;
+    }
+
+    // Add these helper methods
+    private boolean isBlack(Node node) {
+        return node == null || node.color == BLACK;
+    }
+
+    private boolean isRed(Node node) {
+        return node != null && node.color == RED;
+    }
+
+    // Only used while rebalancing after a delete, so metrics count their
+    // changes as delete recolourings
+    private void setBlack(Node node) {
+        if (node != null) {
+            setColor(node, BLACK);
+        }
+    }
+
+    private void setRed(Node node) {
+        if (node != null) {
+            setColor(node, RED);
+        }
+    }
+
+    private void setColor(Node node, boolean color) {
+        if (TreeMetrics.ENABLED && node.color != color) metrics.recolour(TreeMetrics.Operation.DELETE, 1);
+        node.color = color;
+    }
+
+    private Node getLeft(Node node) {
+        return node == null ? null : node.left;
+    }
+
+    private Node getRight(Node node) {
+        return node == null ? null : node.right;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Counters since construction or the last resetMetrics(); empty unless
+    // metrics are enabled
+    public TreeMetrics.Snapshot metrics() {
+        return TreeMetrics.ENABLED ? metrics.snapshot() : TreeMetrics.Snapshot.EMPTY;
+    }
+
+    public void resetMetrics() {
+        if (TreeMetrics.ENABLED) metrics.reset();
+    }
+
+    @Override
+    public T first() {
+        if (root == null) {
+            return null;
+        }
+        Node node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T last() {
+        if (root == null) {
+            return null;
+        }
+        Node node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.value;
+    }
+
+    @Override
+    public T floor(T value) {
+        return below(value, true);
+    }
+
+    @Override
+    public T lower(T value) {
+        return below(value, false);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return above(value, true);
+    }
+
+    @Override
+    public T higher(T value) {
+        return above(value, false);
+    }
+
+    // Greatest key below value (or equal to it when inclusive), in one descent
+    private T below(T value, boolean inclusive) {
+        Node node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison > 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    // Least key above value (or equal to it when inclusive), in one descent
+    private T above(T value, boolean inclusive) {
+        Node node = root;
+        T best = null;
+        while (node != null) {
+            int comparison = value.compareTo(node.value);
+            if (comparison < 0 || (comparison == 0 && inclusive)) {
+                best = node.value;
+                if (comparison == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        return new Cursor().startRange(root, from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Cursor().start(root, size);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new Cursor().start(root, size);
+    }
+
+    private class Cursor extends TreeCursor<Node, T> {
+        @Override
+        protected Node left(Node node) {
+            return node.left;
+        }
+
+        @Override
+        protected Node right(Node node) {
+            return node.right;
+        }
+
+        @Override
+        protected T value(Node node) {
+            return node.value;
+        }
+
+        @Override
+        protected int modCount() {
+            return modCount;
+        }
+
+        @Override
+        protected long subtreeSize(Node node) {
+            return count(node);
+        }
+
+        @Override
+        protected TreeCursor<Node, T> newCursor() {
+            return new Cursor();
+        }
+    }
+    public Node getRoot() {
+        return root;
+    }
+    // Kept in the nodes, so O(1) rather than a walk of the whole tree
+    public int getHeight() {
+        return height(root);
+    }
+
+    // Height, black height, size and key range in one snapshot. Height and
+    // size are maintained by every update; the rest takes O(log n) walks,
+    // done at most once per modification and cached until the next one
+    public TreeStats<T> stats() {
+        if (stats == null || statsModCount != modCount) {
+            stats = new TreeStats<>(height(root), blackHeight(root), size, first(), last());
+            statsModCount = modCount;
+        }
+        return stats;
+    }
+    public int getHeight(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        return Math.max(getHeight(node.left), getHeight(node.right)) + 1;
+    }
+    @Override
+    public void traverseInOrder() {
+        inOrderTraversal(root);
+        System.out.println();
+    }
+    @Override
+    public void traversePreOrder() {
+        preOrderTraversal(root);
+        System.out.println();
+    }
+    @Override
+    public void traversePostOrder() {
+        postOrderTraversal(root);
+        System.out.println();
+    }
+
+}
@@ -0,0 +1,389 @@
+package selfbalance;
+
+import java.util.ConcurrentModificationException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Key-value flavour of RedBlackTree: the node carries the payload next to the
+// key, and every write is a single descent that updates an existing entry in
+// place or attaches the new node where the search ended. Lookups walk with
+// locals only, so concurrent readers never disturb each other
+public class RedBlackTreeMap<K extends Comparable<K>, V> {
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    private class Node {
+        K key;
+        V value;
+        boolean color;
+        Node left, right, parent;
+
+        Node(K key, V value, Node parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+            this.color = RED; // New nodes are always red
+        }
+    }
+
+    private Node root;
+    private int size;
+    private int modCount = 0; // Structural changes, to catch reentrant mapping functions
+
+    // Where the last write's descent ended: the matching node, or the parent
+    // a new node would hang from together with the final comparison
+    private Node found;
+    private Node parent;
+    private int comparison;
+
+    private void descend(K key) {
+        found = null;
+        parent = null;
+        comparison = 0;
+        Node current = root;
+        while (current != null) {
+            int result = key.compareTo(current.key);
+            if (result == 0) {
+                found = current;
+                return;
+            }
+            parent = current;
+            comparison = result;
+            current = result < 0 ? current.left : current.right;
+        }
+    }
+
+    private Node find(K key) {
+        Node current = root;
+        while (current != null) {
+            int result = key.compareTo(current.key);
+            if (result == 0) {
+                return current;
+            }
+            current = result < 0 ? current.left : current.right;
+        }
+        return null;
+    }
+
+    private void attach(K key, V value) {
+        Node newNode = new Node(key, value, parent);
+        if (parent == null) {
+            root = newNode;
+        } else if (comparison < 0) {
+            parent.left = newNode;
+        } else {
+            parent.right = newNode;
+        }
+        fixViolation(newNode);
+        size++;
+        modCount++;
+    }
+
+    public V get(K key) {
+        Node node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    public boolean containsKey(K key) {
+        return find(key) != null;
+    }
+
+    // Returns the previous value, or null when the key was new
+    public V put(K key, V value) {
+        descend(key);
+        if (found != null) {
+            V previous = found.value;
+            found.value = value;
+            return previous;
+        }
+        attach(key, value);
+        return null;
+    }
+
+    // Returns the removed value, or null when the key was absent
+    public V remove(K key) {
+        descend(key);
+        if (found == null) {
+            return null;
+        }
+        V removed = found.value;
+        deleteNode(found);
+        size--;
+        return removed;
+    }
+
+    // Returns the existing value, or the computed one when the key was absent.
+    // A null from the mapping function leaves the map unchanged. Like TreeMap,
+    // throws ConcurrentModificationException if the function added or removed
+    // entries, as the attach point may then be gone
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        descend(key);
+        if (found != null) {
+            return found.value;
+        }
+        Node attachTo = parent;
+        int side = comparison;
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (value != null) {
+            parent = attachTo;
+            comparison = side;
+            attach(key, value);
+        }
+        return value;
+    }
+
+    // Stores value for a new key, otherwise combines it with the existing one;
+    // a null combination removes the entry. Returns the new value or null.
+    // Throws ConcurrentModificationException if the function added or removed
+    // entries
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        descend(key);
+        if (found == null) {
+            attach(key, value);
+            return value;
+        }
+        Node node = found;
+        int expectedModCount = modCount;
+        V merged = remappingFunction.apply(node.value, value);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (merged == null) {
+            deleteNode(node);
+            size--;
+        } else {
+            node.value = merged;
+        }
+        return merged;
+    }
+
+    private void rotateLeft(Node node) {
+        Node rightChild = node.right;
+        node.right = rightChild.left;
+        if (rightChild.left != null) {
+            rightChild.left.parent = node;
+        }
+        rightChild.parent = node.parent;
+        if (node.parent == null) {
+            root = rightChild;
+        } else if (node == node.parent.left) {
+            node.parent.left = rightChild;
+        } else {
+            node.parent.right = rightChild;
+        }
+        rightChild.left = node;
+        node.parent = rightChild;
+    }
+
+    private void rotateRight(Node node) {
+        Node leftChild = node.left;
+        node.left = leftChild.right;
+        if (leftChild.right != null) {
+            leftChild.right.parent = node;
+        }
+        leftChild.parent = node.parent;
+        if (node.parent == null) {
+            root = leftChild;
+        } else if (node == node.parent.left) {
+            node.parent.left = leftChild;
+        } else {
+            node.parent.right = leftChild;
+        }
+        leftChild.right = node;
+        node.parent = leftChild;
+    }
+
+    private void fixViolation(Node node) {
+        while (node != root && node.color == RED && node.parent.color == RED) {
+            Node parent = node.parent;
+            Node grandParent = parent.parent;
+            if (parent == grandParent.left) {
+                Node uncle = grandParent.right;
+                if (uncle != null && uncle.color == RED) {
+                    grandParent.color = RED;
+                    parent.color = BLACK;
+                    uncle.color = BLACK;
+                    node = grandParent;
+                } else {
+                    if (node == parent.right) {
+                        rotateLeft(parent);
+                        node = parent;
+                        parent = node.parent;
+                    }
+                    rotateRight(grandParent);
+                    boolean tempColor = parent.color;
+                    parent.color = grandParent.color;
+                    grandParent.color = tempColor;
+                    node = parent;
+                }
+            } else {
+                Node uncle = grandParent.left;
+                if (uncle != null && uncle.color == RED) {
+                    grandParent.color = RED;
+                    parent.color = BLACK;
+                    uncle.color = BLACK;
+                    node = grandParent;
+                } else {
+                    if (node == parent.left) {
+                        rotateRight(parent);
+                        node = parent;
+                        parent = node.parent;
+                    }
+                    rotateLeft(grandParent);
+                    boolean tempColor = parent.color;
+                    parent.color = grandParent.color;
+                    grandParent.color = tempColor;
+                    node = parent;
+                }
+            }
+        }
+        root.color = BLACK; // Ensure the root is always black
+    }
+
+    private void deleteNode(Node node) {
+        modCount++;
+        if (node.left != null && node.right != null) {
+            Node replacement = node.right;
+            while (replacement.left != null) {
+                replacement = replacement.left;
+            }
+            node.key = replacement.key;
+            node.value = replacement.value;
+            node = replacement;
+        }
+        Node child = node.left != null ? node.left : node.right;
+
+        if (child == null && node.parent != null) {
+            // A black leaf is fixed up in place and unlinked afterwards
+            if (node.color == BLACK) {
+                fixAfterDeletion(node);
+            }
+            if (node == node.parent.left) {
+                node.parent.left = null;
+            } else {
+                node.parent.right = null;
+            }
+            node.parent = null;
+            return;
+        }
+
+        if (child != null) {
+            child.parent = node.parent;
+        }
+        if (node.parent == null) {
+            root = child;
+        } else if (node == node.parent.left) {
+            node.parent.left = child;
+        } else {
+            node.parent.right = child;
+        }
+        if (node.color == BLACK) {
+            fixAfterDeletion(child);
+        }
+    }
+
+    private void fixAfterDeletion(Node node) {
+        if (node == null) {
+            return;
+        }
+        while (node != root && isBlack(node)) {
+            if (node == getLeft(node.parent)) {
+                Node sibling = getRight(node.parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(node.parent);
+                    rotateLeft(node.parent);
+                    sibling = getRight(node.parent);
+                }
+                if (isBlack(getLeft(sibling)) && isBlack(getRight(sibling))) {
+                    setRed(sibling);
+                    node = node.parent;
+                } else {
+                    if (isBlack(getRight(sibling))) {
+                        setBlack(getLeft(sibling));
+                        setRed(sibling);
+                        rotateRight(sibling);
+                        sibling = getRight(node.parent);
+                    }
+                    sibling.color = node.parent.color;
+                    setBlack(node.parent);
+                    setBlack(getRight(sibling));
+                    rotateLeft(node.parent);
+                    node = root;
+                }
+            } else {
+                Node sibling = getLeft(node.parent);
+                if (isRed(sibling)) {
+                    setBlack(sibling);
+                    setRed(node.parent);
+                    rotateRight(node.parent);
+                    sibling = getLeft(node.parent);
+                }
+                if (isBlack(getRight(sibling)) && isBlack(getLeft(sibling))) {
+                    setRed(sibling);
+                    node = node.parent;
+                } else {
+                    if (isBlack(getLeft(sibling))) {
+                        setBlack(getRight(sibling));
+                        setRed(sibling);
+                        rotateLeft(sibling);
+                        sibling = getLeft(node.parent);
+                    }
+                    sibling.color = node.parent.color;
+                    setBlack(node.parent);
+                    setBlack(getLeft(sibling));
+                    rotateRight(node.parent);
+                    node = root;
+                }
+            }
+        }
+        setBlack(node);
+    }
+
+    private boolean isBlack(Node node) {
+        return node == null || node.color == BLACK;
+    }
+
+    private boolean isRed(Node node) {
+        return node != null && node.color == RED;
+    }
+
+    private void setBlack(Node node) {
+        if (node != null) {
+            node.color = BLACK;
+        }
+    }
+
+    private void setRed(Node node) {
+        if (node != null) {
+            node.color = RED;
+        }
+    }
+
+    private Node getLeft(Node node) {
+        return node == null ? null : node.left;
+    }
+
+    private Node getRight(Node node) {
+        return node == null ? null : node.right;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getHeight() {
+        return getHeight(root);
+    }
+
+    private int getHeight(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        return Math.max(getHeight(node.left), getHeight(node.right)) + 1;
+    }
+}
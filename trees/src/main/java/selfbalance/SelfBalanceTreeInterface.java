@@ -0,0 +1,85 @@
+package selfbalance;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public interface SelfBalanceTreeInterface<T extends Comparable<T>> extends Iterable<T> {
+    boolean insert(T value);
+    boolean delete(T value);
+    boolean search(T value);
+    void traverseInOrder();
+    void traversePreOrder();
+    void traversePostOrder();
+    int getHeight();
+    int getSize();
+
+    // Replaces the contents with the given keys, built balanced in O(n) when
+    // they are sorted and distinct (unsorted input is sorted first)
+    void bulkLoad(T[] sorted);
+
+    default void bulkLoad(Iterable<T> values) {
+        bulkLoad(SortedKeys.toArray(values));
+    }
+
+    // Binary snapshot of the keys (see TreeSnapshot); load replaces the
+    // contents and rejects a snapshot written with another codec
+    default void save(Path path) throws IOException {
+        TreeSnapshot.save(this, path);
+    }
+
+    default void load(Path path, KeyCodec<T> codec) throws IOException {
+        TreeSnapshot.load(this, path, codec);
+    }
+
+    // Ordered navigation; each returns null when there is no such key
+    T first();
+    T last();
+    T floor(T value);
+    T ceiling(T value);
+    T lower(T value);
+    T higher(T value);
+
+    // Keys between from and to in ascending order, produced lazily
+    Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive);
+
+    // Keys in ascending order, produced lazily from the tree's spliterator
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // Batch variants of insert/delete/search. The batch is sorted first; keys
+    // repeated inside an insert or delete batch count as skipped
+    default BatchResult insertAll(Collection<T> values) {
+        int applied = 0;
+        for (T value : SortedKeys.distinct(SortedKeys.toArray(values))) {
+            if (insert(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.size() - applied);
+    }
+
+    default BatchResult deleteAll(Collection<T> values) {
+        int applied = 0;
+        for (T value : SortedKeys.distinct(SortedKeys.toArray(values))) {
+            if (delete(value)) {
+                applied++;
+            }
+        }
+        return new BatchResult(applied, values.size() - applied);
+    }
+
+    default BatchResult containsAll(Collection<T> values) {
+        int found = 0;
+        for (T value : values) {
+            if (search(value)) {
+                found++;
+            }
+        }
+        return new BatchResult(found, values.size() - found);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,611 @@
+package selfbalance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+// Ordered set split into key-range shards, each its own tree behind its own
+// ConcurrentSelfBalanceTree lock, so writers to different ranges never wait
+// for each other. Shard i holds the keys in [splitters[i - 1], splitters[i]).
+// The splitters are picked from a random sample of the first batch loaded
+// into an empty tree; batches are bucketed by shard and the buckets applied
+// in parallel on the fork-join pool. rebalance() splits shards that grew far
+// past the average and merges runs of ones that shrank far below it.
+//
+// The layout (splitters plus shards) only changes under the exclusive side of
+// layoutLock. Everything else holds it shared: writes lock it, point reads
+// validate an optimistic stamp instead, and range() and the iterators take the
+// read lock only to pick up the layout they are created under. They then walk
+// that layout's shards without it, so they are weakly consistent: a write to a
+// shard is seen if the walk has not passed its key yet, and once a rebalance
+// or bulkLoad retires those shards the walk goes on over their last contents.
+public class ShardedTree<T extends Comparable<T>> implements SelfBalanceTreeInterface<T> {
+    private static final int SAMPLES_PER_SHARD = 32;
+
+    private static final class Layout<T extends Comparable<T>> {
+        final List<T> splitters;
+        final List<SelfBalanceTreeInterface<T>> shards;
+
+        Layout(List<T> splitters, List<SelfBalanceTreeInterface<T>> shards) {
+            this.splitters = splitters;
+            this.shards = shards;
+        }
+
+        // Index of the shard whose range holds key: the number of splitters <= key
+        int shardOf(T key) {
+            int lo = 0;
+            int hi = splitters.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (splitters.get(mid).compareTo(key) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        SelfBalanceTreeInterface<T> shardFor(T key) {
+            return shards.get(shardOf(key));
+        }
+    }
+
+    private final int shardCount;
+    private final Supplier<? extends SelfBalanceTreeInterface<T>> factory;
+    private final StampedLock layoutLock = new StampedLock();
+    private volatile Layout<T> layout;
+
+    public ShardedTree(int shardCount) {
+        this(shardCount, AVLTree::new);
+    }
+
+    // factory creates the tree behind each shard, e.g. AVLTree::new or RedBlackTree::new
+    public ShardedTree(int shardCount, Supplier<? extends SelfBalanceTreeInterface<T>> factory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.factory = factory;
+        this.layout = new Layout<>(Collections.emptyList(), Collections.singletonList(newShard()));
+    }
+
+    private SelfBalanceTreeInterface<T> newShard() {
+        return new ConcurrentSelfBalanceTree<>(factory.get());
+    }
+
+    public int getShardCount() {
+        return layout.shards.size();
+    }
+
+    private <R> R read(Function<Layout<T>, R> reader) {
+        long stamp = layoutLock.tryOptimisticRead();
+        if (stamp != 0) {
+            R result = reader.apply(layout);
+            if (layoutLock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = layoutLock.readLock();
+        try {
+            return reader.apply(layout);
+        } finally {
+            layoutLock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Function<Layout<T>, R> writer) {
+        long stamp = layoutLock.readLock();
+        try {
+            return writer.apply(layout);
+        } finally {
+            layoutLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean insert(T value) {
+        return write(layout -> layout.shardFor(value).insert(value));
+    }
+
+    @Override
+    public boolean delete(T value) {
+        return write(layout -> layout.shardFor(value).delete(value));
+    }
+
+    @Override
+    public boolean search(T value) {
+        return read(layout -> layout.shardFor(value).search(value));
+    }
+
+    @Override
+    public BatchResult insertAll(Collection<T> values) {
+        T[] keys = SortedKeys.toArray(values);
+        if (keys.length > 0 && getSize() == 0) {
+            // First load: lay the shards out to match this batch
+            long stamp = layoutLock.writeLock();
+            try {
+                if (getSize(layout) == 0) {
+                    layout = emptyLayout(sampleSplitters(keys));
+                }
+            } finally {
+                layoutLock.unlockWrite(stamp);
+            }
+        }
+        int applied = write(layout -> applyBuckets(layout, keys,
+                (shard, bucket) -> shard.insertAll(bucket).getApplied()));
+        return new BatchResult(applied, values.size() - applied);
+    }
+
+    @Override
+    public BatchResult deleteAll(Collection<T> values) {
+        T[] keys = SortedKeys.toArray(values);
+        int applied = write(layout -> applyBuckets(layout, keys,
+                (shard, bucket) -> shard.deleteAll(bucket).getApplied()));
+        return new BatchResult(applied, values.size() - applied);
+    }
+
+    @Override
+    public BatchResult containsAll(Collection<T> values) {
+        T[] keys = SortedKeys.toArray(values);
+        int found = write(layout -> applyBuckets(layout, keys,
+                (shard, bucket) -> shard.containsAll(bucket).getApplied()));
+        return new BatchResult(found, values.size() - found);
+    }
+
+    private interface ShardBatch<T extends Comparable<T>> {
+        int apply(SelfBalanceTreeInterface<T> shard, List<T> bucket);
+    }
+
+    // Buckets the keys by shard, then runs op on every non-empty bucket in
+    // parallel and adds up what each returns
+    private int applyBuckets(Layout<T> layout, T[] keys, ShardBatch<T> op) {
+        List<List<T>> buckets = new ArrayList<>();
+        for (int i = 0; i < layout.shards.size(); i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (T key : keys) {
+            buckets.get(layout.shardOf(key)).add(key);
+        }
+        return parallelSum(0, buckets.size(), i -> buckets.get(i).isEmpty() ? 0
+                : op.apply(layout.shards.get(i), buckets.get(i)));
+    }
+
+    private static int parallelSum(int lo, int hi, IntUnaryOperator work) {
+        if (hi - lo == 1) {
+            return work.applyAsInt(lo); // Nothing to fork
+        }
+        return ForkJoinPool.commonPool().invoke(new SumTask(lo, hi, work));
+    }
+
+    private static final class SumTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+        private final IntUnaryOperator work;
+
+        SumTask(int lo, int hi, IntUnaryOperator work) {
+            this.lo = lo;
+            this.hi = hi;
+            this.work = work;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (hi - lo == 1) {
+                return work.applyAsInt(lo);
+            }
+            int mid = (lo + hi) >>> 1;
+            SumTask left = new SumTask(lo, mid, work);
+            left.fork();
+            int right = new SumTask(mid, hi, work).compute();
+            return left.join() + right;
+        }
+    }
+
+    // Splitters at the quantiles of a random sample of the keys
+    private List<T> sampleSplitters(T[] keys) {
+        int sampleSize = (int) Math.min(keys.length, (long) shardCount * SAMPLES_PER_SHARD);
+        T[] sample = Arrays.copyOf(keys, sampleSize);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = keys[random.nextInt(keys.length)];
+        }
+        return quantiles(SortedKeys.distinct(sample));
+    }
+
+    // shardCount - 1 evenly spaced keys of a sorted, distinct array
+    private List<T> quantiles(T[] sorted) {
+        List<T> splitters = new ArrayList<>();
+        for (int i = 1; i < shardCount; i++) {
+            int index = (int) ((long) i * sorted.length / shardCount);
+            if (index > 0 && (splitters.isEmpty() || splitters.get(splitters.size() - 1).compareTo(sorted[index]) < 0)) {
+                splitters.add(sorted[index]);
+            }
+        }
+        return splitters;
+    }
+
+    private Layout<T> emptyLayout(List<T> splitters) {
+        List<SelfBalanceTreeInterface<T>> shards = new ArrayList<>();
+        for (int i = 0; i <= splitters.size(); i++) {
+            shards.add(newShard());
+        }
+        return new Layout<>(Collections.unmodifiableList(splitters), Collections.unmodifiableList(shards));
+    }
+
+    // Exact quantiles of the keys become the splitters, and every shard is
+    // bulk-loaded from its slice in parallel
+    @Override
+    public void bulkLoad(T[] sorted) {
+        T[] keys = SortedKeys.distinct(sorted);
+        long stamp = layoutLock.writeLock();
+        try {
+            Layout<T> fresh = emptyLayout(quantiles(keys));
+            parallelSum(0, fresh.shards.size(), i -> {
+                int from = i == 0 ? 0 : SortedKeys.lowerBound(keys, 0, keys.length, fresh.splitters.get(i - 1));
+                int to = i == fresh.splitters.size() ? keys.length
+                        : SortedKeys.lowerBound(keys, from, keys.length, fresh.splitters.get(i));
+                fresh.shards.get(i).bulkLoad(Arrays.copyOfRange(keys, from, to));
+                return to - from;
+            });
+            layout = fresh;
+        } finally {
+            layoutLock.unlockWrite(stamp);
+        }
+    }
+
+    // Splits every shard holding more than twice the average into pieces of
+    // about the average size, and merges runs of neighbouring shards holding
+    // less than half of it. Shards in between are kept as they are. Returns
+    // whether the layout changed.
+    public boolean rebalance() {
+        long stamp = layoutLock.writeLock();
+        try {
+            Layout<T> old = layout;
+            int total = getSize(old);
+            int target = Math.max(1, (total + shardCount - 1) / shardCount);
+            List<T> lowers = new ArrayList<>(); // Lower bound of each new shard
+            List<SelfBalanceTreeInterface<T>> shards = new ArrayList<>();
+            List<T> merged = new ArrayList<>();
+            T mergedLower = null;
+            boolean merging = false;
+            boolean changed = false;
+            for (int i = 0; i < old.shards.size(); i++) {
+                SelfBalanceTreeInterface<T> shard = old.shards.get(i);
+                T lower = i == 0 ? null : old.splitters.get(i - 1);
+                int size = shard.getSize();
+                if (size > 2 * target) {
+                    changed |= flushMerged(merging, merged, mergedLower, lowers, shards);
+                    merging = false;
+                    T[] keys = SortedKeys.toArray(shard);
+                    int pieces = (size + target - 1) / target;
+                    for (int p = 0; p < pieces; p++) {
+                        int from = (int) ((long) p * size / pieces);
+                        int to = (int) ((long) (p + 1) * size / pieces);
+                        SelfBalanceTreeInterface<T> piece = newShard();
+                        piece.bulkLoad(Arrays.copyOfRange(keys, from, to));
+                        lowers.add(p == 0 ? lower : keys[from]);
+                        shards.add(piece);
+                    }
+                    changed = true;
+                } else if (size < target / 2 && old.shards.size() > 1) {
+                    if (!merging) {
+                        merging = true;
+                        mergedLower = lower;
+                        merged.clear();
+                    }
+                    shard.forEach(merged::add); // Shards are in key order
+                    if (merged.size() >= target / 2) {
+                        changed |= flushMerged(true, merged, mergedLower, lowers, shards);
+                        merging = false;
+                    }
+                } else {
+                    changed |= flushMerged(merging, merged, mergedLower, lowers, shards);
+                    merging = false;
+                    lowers.add(lower);
+                    shards.add(shard);
+                }
+            }
+            changed |= flushMerged(merging, merged, mergedLower, lowers, shards);
+            if (shards.isEmpty()) {
+                shards.add(newShard());
+                lowers.add(null);
+            }
+            if (!changed) {
+                return false;
+            }
+            layout = new Layout<>(Collections.unmodifiableList(new ArrayList<>(lowers.subList(1, lowers.size()))),
+                    Collections.unmodifiableList(shards));
+            return true;
+        } finally {
+            layoutLock.unlockWrite(stamp);
+        }
+    }
+
+    // Emits the shards merged so far as one new shard. An empty run is
+    // dropped: its range simply joins the shard before it
+    private boolean flushMerged(boolean merging, List<T> merged, T mergedLower, List<T> lowers,
+                                List<SelfBalanceTreeInterface<T>> shards) {
+        if (!merging) {
+            return false;
+        }
+        if (!merged.isEmpty()) {
+            SelfBalanceTreeInterface<T> shard = newShard();
+            shard.bulkLoad(SortedKeys.toArray(merged));
+            lowers.add(mergedLower);
+            shards.add(shard);
+            merged.clear();
+        }
+        return true;
+    }
+
+    @Override
+    public int getSize() {
+        return read(ShardedTree::getSize);
+    }
+
+    private static <T extends Comparable<T>> int getSize(Layout<T> layout) {
+        int size = 0;
+        for (SelfBalanceTreeInterface<T> shard : layout.shards) {
+            size += shard.getSize();
+        }
+        return size;
+    }
+
+    // The shard lookup is a flat binary search, so the tallest shard bounds
+    // the path of every search
+    @Override
+    public int getHeight() {
+        return read(layout -> {
+            int height = 0;
+            for (SelfBalanceTreeInterface<T> shard : layout.shards) {
+                height = Math.max(height, shard.getHeight());
+            }
+            return height;
+        });
+    }
+
+    @Override
+    public void traverseInOrder() {
+        for (T key : this) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+    }
+
+    // Pre- and post-order are per shard, one line each
+    @Override
+    public void traversePreOrder() {
+        for (SelfBalanceTreeInterface<T> shard : layout.shards) {
+            shard.traversePreOrder();
+        }
+    }
+
+    @Override
+    public void traversePostOrder() {
+        for (SelfBalanceTreeInterface<T> shard : layout.shards) {
+            shard.traversePostOrder();
+        }
+    }
+
+    @Override
+    public T first() {
+        return read(layout -> {
+            for (SelfBalanceTreeInterface<T> shard : layout.shards) {
+                T first = shard.first();
+                if (first != null) {
+                    return first;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public T last() {
+        return read(layout -> lastBefore(layout, layout.shards.size()));
+    }
+
+    @Override
+    public T floor(T value) {
+        return read(layout -> {
+            int index = layout.shardOf(value);
+            T floor = layout.shards.get(index).floor(value);
+            return floor != null ? floor : lastBefore(layout, index);
+        });
+    }
+
+    @Override
+    public T lower(T value) {
+        return read(layout -> {
+            int index = layout.shardOf(value);
+            T lower = layout.shards.get(index).lower(value);
+            return lower != null ? lower : lastBefore(layout, index);
+        });
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return read(layout -> {
+            int index = layout.shardOf(value);
+            T ceiling = layout.shards.get(index).ceiling(value);
+            return ceiling != null ? ceiling : firstAfter(layout, index);
+        });
+    }
+
+    @Override
+    public T higher(T value) {
+        return read(layout -> {
+            int index = layout.shardOf(value);
+            T higher = layout.shards.get(index).higher(value);
+            return higher != null ? higher : firstAfter(layout, index);
+        });
+    }
+
+    // Largest key of the shards before index
+    private T lastBefore(Layout<T> layout, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            T last = layout.shards.get(i).last();
+            if (last != null) {
+                return last;
+            }
+        }
+        return null;
+    }
+
+    // Smallest key of the shards after index
+    private T firstAfter(Layout<T> layout, int index) {
+        for (int i = index + 1; i < layout.shards.size(); i++) {
+            T first = layout.shards.get(i).first();
+            if (first != null) {
+                return first;
+            }
+        }
+        return null;
+    }
+
+    private Layout<T> lockedLayout() {
+        long stamp = layoutLock.readLock();
+        try {
+            return layout;
+        } finally {
+            layoutLock.unlockRead(stamp);
+        }
+    }
+
+    // Concatenates the ranges of the shards that overlap [from, to]. Each
+    // shard's part is a snapshot taken when the walk reaches that shard
+    @Override
+    public Iterator<T> range(T from, boolean fromInclusive, T to, boolean toInclusive) {
+        Layout<T> current = lockedLayout();
+        int first = current.shardOf(from);
+        int last = current.shardOf(to);
+        return new Iterator<T>() {
+            private int index = first;
+            private Iterator<T> shard = index <= last
+                    ? current.shards.get(index).range(from, fromInclusive, to, toInclusive)
+                    : Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!shard.hasNext() && index < last) {
+                    index++;
+                    shard = current.shards.get(index).range(from, fromInclusive, to, toInclusive);
+                }
+                return shard.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return shard.next();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        List<SelfBalanceTreeInterface<T>> shards = lockedLayout().shards;
+        return new ShardSpliterator(shards, 0, shards.size());
+    }
+
+    // Walks shards[lo..hi) in order. Splitting hands out whole shards first,
+    // then splits the last remaining shard's own spliterator
+    private final class ShardSpliterator implements Spliterator<T> {
+        private final List<SelfBalanceTreeInterface<T>> shards;
+        private int lo;
+        private final int hi;
+        private Spliterator<T> current;
+
+        ShardSpliterator(List<SelfBalanceTreeInterface<T>> shards, int lo, int hi) {
+            this.shards = shards;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        private Spliterator<T> current() {
+            if (current == null && lo < hi) {
+                current = shards.get(lo).spliterator();
+            }
+            return current;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (current() != null) {
+                if (current.tryAdvance(action)) {
+                    return true;
+                }
+                current = null;
+                lo++;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (current() != null) {
+                current.forEachRemaining(action);
+                current = null;
+                lo++;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (hi - lo > 1 && current == null) {
+                int mid = (lo + hi) >>> 1;
+                Spliterator<T> prefix = new ShardSpliterator(shards, lo, mid);
+                lo = mid;
+                return prefix;
+            }
+            if (hi - lo == 1) {
+                return current().trySplit();
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = current == null ? 0 : current.estimateSize();
+            for (int i = current == null ? lo : lo + 1; i < hi; i++) {
+                size += shards.get(i).getSize();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null; // Natural ordering
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package selfbalance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Helpers shared by the bulk operations of the trees
+final class SortedKeys {
+    private SortedKeys() {
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T extends Comparable<T>> T[] toArray(Iterable<T> values) {
+        if (values instanceof Collection) {
+            return (T[]) ((Collection<T>) values).toArray(new Comparable[0]);
+        }
+        List<T> list = new ArrayList<>();
+        for (T value : values) {
+            list.add(value);
+        }
+        return (T[]) list.toArray(new Comparable[0]);
+    }
+
+    // Array for keys of type T, whose erasure is Comparable
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>> T[] newArray(int length) {
+        return (T[]) new Comparable<?>[length];
+    }
+
+    // Returns the keys sorted and without duplicates. Input that is already
+    // strictly ascending is returned as is, anything else is copied and sorted
+    static <T extends Comparable<T>> T[] distinct(T[] keys) {
+        if (isStrictlyAscending(keys)) {
+            return keys;
+        }
+        T[] sorted = Arrays.copyOf(keys, keys.length);
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[i].compareTo(sorted[count - 1]) != 0) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    // Returns the keys sorted, duplicates kept; sorted input is returned as is
+    static <T extends Comparable<T>> T[] sorted(T[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1].compareTo(keys[i]) > 0) {
+                T[] copy = Arrays.copyOf(keys, keys.length);
+                Arrays.sort(copy);
+                return copy;
+            }
+        }
+        return keys;
+    }
+
+    // First index in keys[lo..hi) whose key is >= key
+    static <T extends Comparable<T>> int lowerBound(T[] keys, int lo, int hi, T key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static <T extends Comparable<T>> boolean isStrictlyAscending(T[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1].compareTo(keys[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,195 @@
+package selfbalance;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Lazy in-order walk over a binary search tree, used both as Iterator and as
+// Spliterator. The stack holds the nodes still to emit, deepest on top; each
+// one is followed by its right subtree, except for `last`, the upper bound a
+// split leaves on the prefix half. Splitting hands out the part of the stack
+// before a right subtree, so the halves are whole subtrees plus a few nodes.
+// A range walk starts at the first node inside the lower bound and stops at
+// the first node past the upper bound `to`.
+abstract class TreeCursor<N, T extends Comparable<T>> implements Iterator<T>, Spliterator<T> {
+    private final ArrayDeque<N> stack = new ArrayDeque<>();
+    private N last;
+    private T to;
+    private boolean toInclusive;
+    private long estimate;
+    private boolean exact;
+    private int expectedModCount;
+
+    protected abstract N left(N node);
+
+    protected abstract N right(N node);
+
+    protected abstract T value(N node);
+
+    protected abstract int modCount();
+
+    protected abstract TreeCursor<N, T> newCursor();
+
+    // Trees that keep subtree sizes report them here so splits stay SIZED
+    protected long subtreeSize(N node) {
+        return -1;
+    }
+
+    // Starts an unbounded walk over the whole tree
+    final TreeCursor<N, T> start(N root, long size) {
+        pushLeft(root);
+        estimate = size;
+        exact = true;
+        expectedModCount = modCount();
+        return this;
+    }
+
+    // Starts a walk over the keys between from and to
+    final TreeCursor<N, T> startRange(N root, T from, boolean fromInclusive, T to, boolean toInclusive) {
+        N node = root;
+        while (node != null) {
+            int comparison = value(node).compareTo(from);
+            if (comparison > 0 || (comparison == 0 && fromInclusive)) {
+                stack.push(node);
+                node = left(node);
+            } else {
+                node = right(node);
+            }
+        }
+        this.to = to;
+        this.toInclusive = toInclusive;
+        estimate = Long.MAX_VALUE; // Unknown until walked
+        exact = false;
+        expectedModCount = modCount();
+        return this;
+    }
+
+    private boolean inRange(N node) {
+        if (to == null) {
+            return true;
+        }
+        int comparison = value(node).compareTo(to);
+        return comparison < 0 || (comparison == 0 && toInclusive);
+    }
+
+    private void pushLeft(N node) {
+        while (node != null) {
+            stack.push(node);
+            node = left(node);
+        }
+    }
+
+    private N advance() {
+        if (modCount() != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        N node = stack.pop();
+        if (exact) {
+            estimate--;
+        }
+        if (node != last) {
+            pushLeft(right(node));
+        }
+        return node;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !stack.isEmpty() && inRange(stack.peek());
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return value(advance());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!hasNext()) {
+            return false;
+        }
+        action.accept(value(advance()));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (hasNext()) {
+            action.accept(value(advance()));
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (stack.isEmpty() || estimate < 2) {
+            return null;
+        }
+        TreeCursor<N, T> prefix = newCursor();
+        N bottom = stack.peekLast();
+        long suffixSize;
+        if (bottom != last && right(bottom) != null) {
+            suffixSize = subtreeSize(right(bottom));
+            // Prefix: everything up to the bottom node, suffix: its right subtree
+            prefix.stack.addAll(stack);
+            prefix.last = bottom;
+            stack.clear();
+            pushLeft(right(bottom));
+        } else {
+            // The bottom node closes this range: split at the right subtree of
+            // the node above it, and keep the bottom node for the suffix
+            if (stack.size() < 2) {
+                return null;
+            }
+            Iterator<N> fromBottom = stack.descendingIterator();
+            fromBottom.next();
+            N above = fromBottom.next();
+            if (right(above) == null) {
+                return null;
+            }
+            long rightSize = subtreeSize(right(above));
+            suffixSize = rightSize < 0 ? -1 : rightSize + 1;
+            prefix.stack.addAll(stack);
+            prefix.stack.removeLast();
+            prefix.last = above;
+            stack.clear();
+            stack.push(bottom);
+            pushLeft(right(above));
+        }
+        prefix.to = to;
+        prefix.toInclusive = toInclusive;
+        prefix.expectedModCount = expectedModCount;
+        if (exact && suffixSize >= 0) {
+            prefix.exact = true;
+            prefix.estimate = estimate - suffixSize;
+            estimate = suffixSize;
+        } else {
+            prefix.estimate = estimate >>> 1;
+            estimate -= prefix.estimate;
+            exact = false;
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return (exact ? Spliterator.SIZED | Spliterator.SUBSIZED : 0) | Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return null; // Natural ordering
+    }
+}
@@ -0,0 +1,186 @@
+package selfbalance;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opt-in counters on the hot paths of AVLTree and RedBlackTree: operations
+// and key comparisons per operation, rotations by case, recolourings and a
+// histogram of search-path depths. Switch them on with
+// -Dselfbalance.metrics=true. ENABLED is a static final, so when it is off
+// the JIT folds every `if (TreeMetrics.ENABLED)` away and the trees run the
+// code they ran before. The counters are LongAdders, whose striped cells keep
+// concurrent readers of one tree from contending on a single counter.
+//
+// A tree's counters are read with snapshot(), which can also be recorded as a
+// JFR event (see TreeMetricsEvent).
+public final class TreeMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("selfbalance.metrics");
+    // Paths this deep or deeper share the last bucket
+    public static final int DEPTH_BUCKETS = 64;
+
+    public enum Operation {
+        SEARCH,
+        INSERT,
+        DELETE
+    }
+
+    // The four AVL rebalancing cases, then the red-black tree's single rotations
+    public enum Rotation {
+        LL,
+        RR,
+        LR,
+        RL,
+        LEFT,
+        RIGHT
+    }
+
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final LongAdder[] operations = adders(OPERATIONS);
+    private final LongAdder[] comparisons = adders(OPERATIONS);
+    private final LongAdder[] recolourings = adders(OPERATIONS);
+    private final LongAdder[] rotations = adders(Rotation.values().length);
+    private final LongAdder[] depths = adders(OPERATIONS * DEPTH_BUCKETS);
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // One operation whose descent compared the key with `comparisons` nodes,
+    // which is also the depth of its search path
+    void record(Operation operation, int comparisons) {
+        int index = operation.ordinal();
+        operations[index].increment();
+        this.comparisons[index].add(comparisons);
+        depths[index * DEPTH_BUCKETS + Math.min(comparisons, DEPTH_BUCKETS - 1)].increment();
+    }
+
+    void rotation(Rotation rotation) {
+        rotations[rotation.ordinal()].increment();
+    }
+
+    void recolour(Operation operation, int nodes) {
+        recolourings[operation.ordinal()].add(nodes);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(sums(operations), sums(comparisons), sums(recolourings), sums(rotations), sums(depths));
+    }
+
+    // Not atomic with respect to concurrent updates: an operation running
+    // during reset may be half counted
+    public void reset() {
+        for (LongAdder[] group : Arrays.asList(operations, comparisons, recolourings, rotations, depths)) {
+            for (LongAdder adder : group) {
+                adder.reset();
+            }
+        }
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    // Counter values at one point in time. Each counter is read separately,
+    // so a snapshot taken under concurrent updates is close but not exact
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(new long[OPERATIONS], new long[OPERATIONS],
+                new long[OPERATIONS], new long[Rotation.values().length], new long[OPERATIONS * DEPTH_BUCKETS]);
+
+        private final long[] operations;
+        private final long[] comparisons;
+        private final long[] recolourings;
+        private final long[] rotations;
+        private final long[] depths;
+
+        private Snapshot(long[] operations, long[] comparisons, long[] recolourings, long[] rotations,
+                         long[] depths) {
+            this.operations = operations;
+            this.comparisons = comparisons;
+            this.recolourings = recolourings;
+            this.rotations = rotations;
+            this.depths = depths;
+        }
+
+        public long getOperations(Operation operation) {
+            return operations[operation.ordinal()];
+        }
+
+        public long getComparisons(Operation operation) {
+            return comparisons[operation.ordinal()];
+        }
+
+        public double getComparisonsPerOperation(Operation operation) {
+            long count = getOperations(operation);
+            return count == 0 ? 0 : (double) getComparisons(operation) / count;
+        }
+
+        public long getRecolourings(Operation operation) {
+            return recolourings[operation.ordinal()];
+        }
+
+        public long getRotations(Rotation rotation) {
+            return rotations[rotation.ordinal()];
+        }
+
+        public long getTotalRotations() {
+            long total = 0;
+            for (long count : rotations) {
+                total += count;
+            }
+            return total;
+        }
+
+        // Element d counts the operations whose search path was d nodes deep
+        public long[] getDepthHistogram(Operation operation) {
+            int from = operation.ordinal() * DEPTH_BUCKETS;
+            return Arrays.copyOfRange(depths, from, from + DEPTH_BUCKETS);
+        }
+
+        // Records this snapshot as a selfbalance.TreeMetrics event if a JFR
+        // recording has the event enabled
+        public void commit(String tree) {
+            TreeMetricsEvent event = new TreeMetricsEvent();
+            if (!event.isEnabled()) {
+                return;
+            }
+            event.tree = tree;
+            event.searches = getOperations(Operation.SEARCH);
+            event.inserts = getOperations(Operation.INSERT);
+            event.deletes = getOperations(Operation.DELETE);
+            event.comparisons = getComparisons(Operation.SEARCH) + getComparisons(Operation.INSERT)
+                    + getComparisons(Operation.DELETE);
+            event.llRotations = getRotations(Rotation.LL);
+            event.rrRotations = getRotations(Rotation.RR);
+            event.lrRotations = getRotations(Rotation.LR);
+            event.rlRotations = getRotations(Rotation.RL);
+            event.leftRotations = getRotations(Rotation.LEFT);
+            event.rightRotations = getRotations(Rotation.RIGHT);
+            event.recolourings = getRecolourings(Operation.INSERT) + getRecolourings(Operation.DELETE);
+            event.commit();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Operation operation : Operation.values()) {
+                text.append(operation).append(": ").append(getOperations(operation)).append(" ops, ")
+                        .append(String.format("%.2f", getComparisonsPerOperation(operation)))
+                        .append(" comparisons/op, ").append(getRecolourings(operation)).append(" recolourings\n");
+            }
+            text.append("Rotations:");
+            for (Rotation rotation : Rotation.values()) {
+                text.append(' ').append(rotation).append('=').append(getRotations(rotation));
+            }
+            return text.toString();
+        }
+    }
+}
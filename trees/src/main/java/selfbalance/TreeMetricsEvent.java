@@ -0,0 +1,51 @@
+package selfbalance;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR form of a TreeMetrics snapshot, committed by Snapshot.commit(). The
+// counts are totals since the tree was created or its metrics last reset
+@Name("selfbalance.TreeMetrics")
+@Label("Tree Metrics")
+@Category("Self-Balance Trees")
+@Description("Operation, comparison, rotation and recolouring counts of one tree")
+final class TreeMetricsEvent extends Event {
+    @Label("Tree")
+    String tree;
+
+    @Label("Searches")
+    long searches;
+
+    @Label("Inserts")
+    long inserts;
+
+    @Label("Deletes")
+    long deletes;
+
+    @Label("Key Comparisons")
+    long comparisons;
+
+    @Label("LL Rotations")
+    long llRotations;
+
+    @Label("RR Rotations")
+    long rrRotations;
+
+    @Label("LR Rotations")
+    long lrRotations;
+
+    @Label("RL Rotations")
+    long rlRotations;
+
+    @Label("Left Rotations")
+    long leftRotations;
+
+    @Label("Right Rotations")
+    long rightRotations;
+
+    @Label("Recolourings")
+    long recolourings;
+}
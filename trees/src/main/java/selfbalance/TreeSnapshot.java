@@ -0,0 +1,185 @@
+package selfbalance;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Binary snapshot of a tree's keys. Layout, big-endian:
+//   int magic, byte version, byte codec id, int size, int height,
+//   then size keys in ascending order, each an int length plus its bytes.
+// Keys come out of the tree already sorted and distinct, so loading is one
+// sequential read feeding bulkLoad's linear-time balanced build.
+public final class TreeSnapshot {
+    private static final int MAGIC = 0x53425453; // "SBTS"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 14;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private TreeSnapshot() {
+    }
+
+    // Picks the codec from the type of the tree's keys
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> void save(SelfBalanceTreeInterface<T> tree, Path path) throws IOException {
+        T first = tree.first();
+        // An empty snapshot has no keys to decode, so any codec will do
+        KeyCodec<T> codec = (KeyCodec<T>) (first == null ? KeyCodec.STRING : KeyCodec.forKey(first));
+        save(tree, path, codec);
+    }
+
+    public static <T extends Comparable<T>> void save(SelfBalanceTreeInterface<T> tree, Path path, KeyCodec<T> codec)
+            throws IOException {
+        write(tree, tree.getHeight(), path, codec, false);
+    }
+
+    // Writes the keys, which must be ascending and distinct; with force the
+    // file is on disk when this returns
+    static <T extends Comparable<T>> void write(Iterable<T> keys, int height, Path path, KeyCodec<T> codec,
+                                                boolean force) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            channel.position(HEADER_BYTES); // Header goes last, once the key count is known
+            int size = 0;
+            for (T key : keys) {
+                byte[] bytes = codec.encode(key);
+                if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                    flush(channel, buffer);
+                }
+                if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                    // Larger than the whole buffer: write it straight through
+                    buffer.putInt(bytes.length);
+                    flush(channel, buffer);
+                    writeFully(channel, ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.putInt(bytes.length).put(bytes);
+                }
+                size++;
+            }
+            flush(channel, buffer);
+            buffer.putInt(MAGIC).put(VERSION).put(codec.id()).putInt(size).putInt(height);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            if (force) {
+                channel.force(true);
+            }
+        }
+    }
+
+    // Replaces the tree's contents with the snapshot, whose keys must have
+    // been written with the given codec. Counts and lengths are checked
+    // against the file size, and lengths against the codec's fixed width if it
+    // has one, so a damaged file fails with an IOException before anything is
+    // allocated for it; the tree is left as it was
+    public static <T extends Comparable<T>> void load(SelfBalanceTreeInterface<T> tree, Path path, KeyCodec<T> codec)
+            throws IOException {
+        tree.bulkLoad(read(path, codec));
+    }
+
+    // The snapshot's keys, ascending and distinct, checked as load() describes
+    static <T extends Comparable<T>> T[] read(Path path, KeyCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            ByteBuffer header = input.require(HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a tree snapshot: " + path);
+            }
+            byte version = header.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            byte codecId = header.get();
+            int size = header.getInt();
+            header.getInt(); // Height, informational only
+            // An empty tree is saved with an arbitrary codec, so only a
+            // snapshot with keys has a key type to check
+            if (codecId != codec.id() && size != 0) {
+                throw new IOException("Snapshot holds keys of codec " + codecId + ", expected " + codec.id()
+                        + ": " + path);
+            }
+            // Every key takes at least its length field
+            if (size < 0 || size > (channel.size() - HEADER_BYTES) / Integer.BYTES) {
+                throw new IOException("Snapshot key count " + size + " out of range: " + path);
+            }
+            T[] keys = SortedKeys.newArray(size);
+            for (int i = 0; i < size; i++) {
+                int length = input.require(Integer.BYTES).getInt();
+                if (length < 0 || length > channel.size() - input.position()) {
+                    throw new IOException("Snapshot key length " + length + " out of range: " + path);
+                }
+                if (codec.fixedLength() >= 0 && length != codec.fixedLength()) {
+                    throw new IOException("Snapshot key length " + length + ", expected " + codec.fixedLength()
+                            + ": " + path);
+                }
+                keys[i] = codec.decode(input.require(length), length);
+            }
+            return keys;
+        }
+    }
+
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Buffered reader over the channel that can hand out any number of
+    // contiguous bytes, growing its buffer for keys longer than it
+    static final class Input {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        // Whether any bytes are left before the end of the channel
+        boolean hasMore() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            buffer.clear();
+            int read = channel.read(buffer);
+            buffer.flip();
+            return read > 0;
+        }
+
+        // Offset in the channel of the next byte to be handed out
+        long position() throws IOException {
+            return channel.position() - buffer.remaining();
+        }
+
+        // Returns the buffer with at least the given number of bytes remaining
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            if (bytes > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(bytes, 2 * buffer.capacity()));
+                larger.put(buffer);
+                larger.flip();
+                buffer = larger;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Snapshot ends early");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
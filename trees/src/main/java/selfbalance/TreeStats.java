@@ -0,0 +1,46 @@
+package selfbalance;
+
+// Structural summary of a tree at one point in time. Black height counts the
+// black nodes on a path from the root down to a leaf, the root included, and
+// is 0 for trees without colours. Min and max are null for an empty tree
+public final class TreeStats<T> {
+    private final int height;
+    private final int blackHeight;
+    private final int size;
+    private final T min;
+    private final T max;
+
+    public TreeStats(int height, int blackHeight, int size, T min, T max) {
+        this.height = height;
+        this.blackHeight = blackHeight;
+        this.size = size;
+        this.min = min;
+        this.max = max;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBlackHeight() {
+        return blackHeight;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public T getMin() {
+        return min;
+    }
+
+    public T getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "height=" + height + ", blackHeight=" + blackHeight + ", size=" + size
+                + ", min=" + min + ", max=" + max;
+    }
+}
@@ -0,0 +1,1651 @@
+package selfbalance;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import static org.junit.Assert.*;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public class JUnitTest {
+    
+    private static final String RESULTS_FILE = "test_results.txt";
+    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        private long startTime;
+        
+        @Override
+        protected void starting(Description description) {
+            startTime = System.currentTimeMillis();
+            writeToFile("Starting test: " + description.getMethodName());
+        }
+        
+        @Override
+        protected void succeeded(Description description) {
+            long duration = System.currentTimeMillis() - startTime;
+            writeToFile(String.format("Test %s PASSED (%d ms)\n", 
+                description.getMethodName(), duration));
+        }
+        
+        @Override
+        protected void failed(Throwable e, Description description) {
+            long duration = System.currentTimeMillis() - startTime;
+            writeToFile(String.format("Test %s FAILED (%d ms) - Reason: %s\n", 
+                description.getMethodName(), duration, e.getMessage()));
+        }
+        
+        private void writeToFile(String message) {
+            try (FileWriter writer = new FileWriter(RESULTS_FILE, true)) {
+                String timestamp = DATE_FORMAT.format(new Date());
+                writer.write(timestamp + " - " + message + "\n");
+            } catch (IOException e) {
+                System.err.println("Error writing to results file: " + e.getMessage());
+            }
+        }
+    };
+
+    @Test
+    public void testInsertSingleElement_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        assertTrue(tree.insert("Apple"));
+        assertEquals(1, tree.getSize());
+        assertTrue(tree.search("Apple"));
+    }
+
+    @Test
+    public void testInsertDuplicateElement_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("Banana");
+        assertFalse(tree.insert("Banana"));
+        assertEquals(1, tree.getSize());
+    }
+
+    @Test
+    public void testSearchEmptyTree_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        assertFalse(tree.search("Cherry"));
+    }
+
+    @Test
+    public void testDeleteFromSingleElementTree_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("Date");
+        assertTrue(tree.delete("Date"));
+        assertEquals(0, tree.getSize());
+        assertFalse(tree.search("Date"));
+    }
+
+    @Test
+    public void testLeftRotation_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("A");
+        tree.insert("B");
+        tree.insert("C"); // Should trigger left rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testRightRotation_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("C");
+        tree.insert("B");
+        tree.insert("A"); // Should trigger right rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testLeftRightRotation_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("C");
+        tree.insert("A");
+        tree.insert("B"); // Should trigger LR rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testRightLeftRotation_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("B"); // Should trigger RL rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testMultipleInsertions_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("E");
+        tree.insert("C");
+        tree.insert("G");
+        tree.insert("B");
+        tree.insert("D");
+        tree.insert("F");
+        tree.insert("H");
+        assertEquals(7, tree.getSize());
+        assertTrue(tree.getHeight() <= 3); // AVL property ensures height is logarithmic
+    }
+
+    @Test
+    public void testDeleteLeafNode_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("B");
+        tree.insert("A");
+        tree.insert("C");
+        assertTrue(tree.delete("A"));
+        assertEquals(2, tree.getSize());
+        assertFalse(tree.search("A"));
+    }
+
+    @Test
+    public void testDeleteNodeWithOneChild_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("B");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("D");
+        assertTrue(tree.delete("C"));
+        assertEquals(3, tree.getSize());
+        assertTrue(tree.search("D")); // D should still exist
+    }
+
+    @Test
+    public void testDeleteNodeWithTwoChildren_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("D");
+        tree.insert("B");
+        tree.insert("F");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("E");
+        tree.insert("G");
+        assertTrue(tree.delete("D")); // Should be replaced by E
+        assertEquals(6, tree.getSize());
+        assertFalse(tree.search("D"));
+        assertTrue(tree.search("E"));
+    }
+
+    @Test
+    public void testTreeHeightAfterDeletions_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("D");
+        tree.insert("B");
+        tree.insert("F");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("E");
+        tree.insert("G");
+        tree.delete("A");
+        tree.delete("C");
+        assertEquals(5, tree.getSize());
+        assertTrue(tree.getHeight() <= 3);
+    }
+
+    @Test
+    public void testComplexInsertDeleteSequence_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.insert("M");
+        tree.insert("N");
+        tree.insert("O");
+        tree.insert("L");
+        tree.insert("K");
+        tree.insert("Q");
+        tree.insert("P");
+        tree.insert("H");
+        tree.insert("I");
+        tree.insert("A");
+        
+        assertEquals(10, tree.getSize());
+        
+        tree.delete("H");
+        tree.delete("K");
+        tree.delete("N");
+        
+        assertEquals(7, tree.getSize());
+        assertEquals(3, tree.getHeight());
+    }
+
+    @Test
+    public void testEmptyTreeProperties_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        assertEquals(0, tree.getSize());
+        assertEquals(0, tree.getHeight());
+        assertFalse(tree.delete("Any"));
+    }
+
+    @Test
+    public void testBulkLoadSorted_AVL() {
+        AVLTree<Integer> tree = new AVLTree<>();
+        tree.insert(1);
+        Integer[] keys = new Integer[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 2;
+        }
+        tree.bulkLoad(keys);
+        assertEquals(1000, tree.getSize());
+        assertEquals(10, tree.getHeight());
+        assertTrue(tree.search(998));
+        assertFalse(tree.search(999));
+        assertFalse(tree.search(1)); // Previous contents are replaced
+        assertTrue(tree.insert(1));
+        assertTrue(tree.delete(0));
+        assertEquals(1000, tree.getSize());
+    }
+
+    @Test
+    public void testBulkLoadUnsortedWithDuplicates_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        tree.bulkLoad(java.util.Arrays.asList("D", "B", "A", "D", "C", "B"));
+        assertEquals(4, tree.getSize());
+        assertEquals(3, tree.getHeight());
+        assertTrue(tree.search("C"));
+        assertFalse(tree.insert("A"));
+    }
+
+    @Test
+    public void testBatchInsertDelete_AVL() {
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int i = 0; i < 100; i += 2) {
+            tree.insert(i);
+        }
+        java.util.List<Integer> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batch.add(i);
+        }
+        batch.add(7); // Repeated inside the batch
+        BatchResult inserted = tree.insertAll(batch);
+        assertEquals(150, inserted.getApplied());
+        assertEquals(51, inserted.getSkipped());
+        assertEquals(200, tree.getSize());
+        assertTrue(tree.getHeight() <= 9);
+
+        BatchResult found = tree.containsAll(java.util.Arrays.asList(5, 5, 199, 200));
+        assertEquals(3, found.getApplied());
+        assertEquals(1, found.getSkipped());
+
+        BatchResult deleted = tree.deleteAll(java.util.Arrays.asList(300, 0, 10, 10, 150));
+        assertEquals(3, deleted.getApplied());
+        assertEquals(2, deleted.getSkipped());
+        assertEquals(197, tree.getSize());
+        assertFalse(tree.search(10));
+        assertTrue(tree.search(11));
+    }
+
+    @Test
+    public void testInsertSingleElement_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        assertTrue(tree.insert("Apple"));
+        assertEquals(1, tree.getSize());
+        assertTrue(tree.search("Apple"));
+    }
+
+    @Test
+    public void testInsertDuplicateElement_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("Banana");
+        assertFalse(tree.insert("Banana"));
+        assertEquals(1, tree.getSize());
+    }
+
+    @Test
+    public void testSearchEmptyTree_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        assertFalse(tree.search("Cherry"));
+    }
+
+    @Test
+    public void testDeleteFromSingleElementTree_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("Date");
+        assertTrue(tree.delete("Date"));
+        assertEquals(0, tree.getSize());
+        assertFalse(tree.search("Date"));
+    }
+
+    @Test
+    public void testLeftRotation_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("A");
+        tree.insert("B");
+        tree.insert("C"); // Should trigger left rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testRightRotation_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("C");
+        tree.insert("B");
+        tree.insert("A"); // Should trigger right rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testLeftRightRotation_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("C");
+        tree.insert("A");
+        tree.insert("B"); // Should trigger LR rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testRightLeftRotation_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("B"); // Should trigger RL rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testMultipleInsertions_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("E");
+        tree.insert("C");
+        tree.insert("G");
+        tree.insert("B");
+        tree.insert("D");
+        tree.insert("F");
+        tree.insert("H");
+        assertEquals(7, tree.getSize());
+        assertTrue(tree.getHeight() <= 3); // AVL property ensures height is logarithmic
+    }
+
+    @Test
+    public void testDeleteLeafNode_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("B");
+        tree.insert("A");
+        tree.insert("C");
+        assertTrue(tree.delete("A"));
+        assertEquals(2, tree.getSize());
+        assertFalse(tree.search("A"));
+    }
+
+    @Test
+    public void testDeleteNodeWithOneChild_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("B");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("D");
+        assertTrue(tree.delete("C"));
+        assertEquals(3, tree.getSize());
+        assertTrue(tree.search("D")); // D should still exist
+    }
+
+    @Test
+    public void testDeleteNodeWithTwoChildren_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("D");
+        tree.insert("B");
+        tree.insert("F");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("E");
+        tree.insert("G");
+        assertTrue(tree.delete("D")); // Should be replaced by E
+        assertEquals(6, tree.getSize());
+        assertTrue(tree.search("E"));
+    }
+
+    @Test
+    public void testTreeHeightAfterDeletions_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("D");
+        tree.insert("B");
+        tree.insert("F");
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("E");
+        tree.insert("G");
+        tree.delete("A");
+        tree.delete("C");
+        assertEquals(5, tree.getSize());
+        assertTrue(tree.getHeight() <= 3);
+    }
+
+    @Test
+    public void testComplexInsertDeleteSequence_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.insert("M");
+        tree.insert("N");
+        tree.insert("O");
+        tree.insert("L");
+        tree.insert("K");
+        tree.insert("Q");
+        tree.insert("P");
+        tree.insert("H");
+        tree.insert("I");
+        tree.insert("A");
+        
+        assertEquals(10, tree.getSize());
+        
+        tree.delete("H");
+        tree.delete("K");
+        tree.delete("N");
+        
+        assertEquals(7, tree.getSize());
+        assertEquals(4, tree.getHeight());
+    }
+
+    @Test
+    public void testEmptyTreeProperties_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        assertEquals(0, tree.getSize());
+        assertEquals(0, tree.getHeight());
+        assertFalse(tree.delete("Any"));
+    }
+
+    @Test
+    public void testBulkLoadSorted_RB() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        Integer[] keys = new Integer[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 2;
+        }
+        tree.bulkLoad(keys);
+        assertEquals(1000, tree.getSize());
+        assertEquals(10, tree.getHeight());
+        assertTrue(tree.search(998));
+        assertFalse(tree.search(999));
+        for (int i = 1; i < 2000; i += 2) {
+            assertTrue(tree.insert(i));
+        }
+        for (int i = 0; i < 2000; i += 4) {
+            assertTrue(tree.delete(i));
+        }
+        assertEquals(1500, tree.getSize());
+        assertTrue(tree.getHeight() <= 2 * 11); // Red-black bound 2*log2(n+1)
+    }
+
+    @Test
+    public void testBulkLoadUnsortedWithDuplicates_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        tree.bulkLoad(new String[] {"D", "B", "A", "D", "C", "B"});
+        assertEquals(4, tree.getSize());
+        assertEquals(3, tree.getHeight());
+        assertTrue(tree.search("A"));
+        assertFalse(tree.insert("D"));
+    }
+
+    @Test
+    public void testBatchInsertDelete_RB() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < 100; i += 2) {
+            tree.insert(i);
+        }
+        java.util.List<Integer> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batch.add(i);
+        }
+        batch.add(7); // Repeated inside the batch
+        BatchResult inserted = tree.insertAll(batch);
+        assertEquals(150, inserted.getApplied());
+        assertEquals(51, inserted.getSkipped());
+        assertEquals(200, tree.getSize());
+        assertTrue(tree.getHeight() <= 2 * 8);
+
+        BatchResult found = tree.containsAll(java.util.Arrays.asList(5, 5, 199, 200));
+        assertEquals(3, found.getApplied());
+        assertEquals(1, found.getSkipped());
+
+        BatchResult deleted = tree.deleteAll(java.util.Arrays.asList(300, 0, 10, 10, 150));
+        assertEquals(3, deleted.getApplied());
+        assertEquals(2, deleted.getSkipped());
+        assertEquals(197, tree.getSize());
+        assertFalse(tree.search(10));
+        assertTrue(tree.search(11));
+    }
+
+    @Test
+    public void testPrimitiveKeys_IntAVL() {
+        IntAVLTree tree = new IntAVLTree();
+        assertTrue(tree.insert(30));
+        assertTrue(tree.insert(20));
+        assertTrue(tree.insert(10)); // Should trigger right rotation
+        assertFalse(tree.insert(20));
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+        assertTrue(tree.delete(20));
+        assertFalse(tree.search(20));
+        assertEquals(2, tree.getSize());
+    }
+
+    @Test
+    public void testPrimitiveKeys_LongAVL() {
+        LongAVLTree tree = new LongAVLTree();
+        tree.bulkLoad(new long[] {Long.MAX_VALUE, 5, Long.MIN_VALUE, 5});
+        assertEquals(3, tree.getSize());
+        assertTrue(tree.search(Long.MIN_VALUE));
+        BatchResult result = tree.insertAll(new long[] {1, 2, 5});
+        assertEquals(2, result.getApplied());
+        assertEquals(1, result.getSkipped());
+        assertEquals(5, tree.getSize());
+    }
+
+    @Test
+    public void testPrimitiveKeys_LongRB() {
+        LongRedBlackTree tree = new LongRedBlackTree();
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(tree.insert(i * 3));
+        }
+        for (long i = 0; i < 1000; i += 2) {
+            assertTrue(tree.delete(i * 3));
+        }
+        assertEquals(500, tree.getSize());
+        assertTrue(tree.search(3));
+        assertFalse(tree.search(6));
+        assertTrue(tree.getHeight() <= 2 * 9);
+    }
+
+    @Test
+    public void testRotations_ArrayAVL() {
+        ArrayAVLTree<String> tree = new ArrayAVLTree<>(1);
+        tree.insert("A");
+        tree.insert("C");
+        tree.insert("B"); // Should trigger RL rotation
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+        assertFalse(tree.insert("B"));
+        assertTrue(tree.search("C"));
+    }
+
+    @Test
+    public void testDeleteAndReuseSlots_ArrayAVL() {
+        ArrayAVLTree<Integer> tree = new ArrayAVLTree<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 500; i++) {
+                assertTrue(tree.insert(i));
+            }
+            assertEquals(500, tree.getSize());
+            assertTrue(tree.getHeight() <= 12);
+            for (int i = 0; i < 500; i++) {
+                assertTrue(tree.delete(i));
+            }
+            assertEquals(0, tree.getSize());
+            assertEquals(0, tree.getHeight());
+        }
+        tree.bulkLoad(new Integer[] {3, 1, 2});
+        assertEquals(3, tree.getSize());
+        assertTrue(tree.search(2));
+    }
+
+    @Test
+    public void testInsertDeleteSearch_OffHeapRB() {
+        OffHeapRedBlackTree tree = new OffHeapRedBlackTree();
+        for (long i = 0; i < 100000; i++) { // Spans more than one buffer chunk
+            assertTrue(tree.insert(i));
+        }
+        assertFalse(tree.insert(42));
+        for (long i = 0; i < 100000; i += 2) {
+            assertTrue(tree.delete(i));
+        }
+        assertEquals(50000, tree.getSize());
+        assertTrue(tree.search(99999));
+        assertFalse(tree.search(99998));
+        assertTrue(tree.getHeight() <= 2 * 16);
+        tree.bulkLoad(new long[] {3, 1, 2});
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.getHeight());
+    }
+
+    @Test
+    public void testIteratorInOrder_AVL() {
+        AVLTree<String> tree = new AVLTree<>();
+        for (String value : new String[] {"M", "N", "O", "L", "K", "Q", "P", "H", "I", "A"}) {
+            tree.insert(value);
+        }
+        StringBuilder order = new StringBuilder();
+        for (String value : tree) {
+            order.append(value);
+        }
+        assertEquals("AHIKLMNOPQ", order.toString());
+        assertEquals("AHIKLMNOPQ", tree.stream().parallel().collect(java.util.stream.Collectors.joining()));
+    }
+
+    @Test
+    public void testParallelStream_RB() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 1; i <= 10000; i++) {
+            tree.insert(i);
+        }
+        java.util.Spliterator<Integer> spliterator = tree.spliterator();
+        assertEquals(10000, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(java.util.Spliterator.SORTED));
+        assertNotNull(spliterator.trySplit());
+        assertEquals(50005000L, tree.stream().parallel().mapToLong(Integer::longValue).sum());
+        java.util.Iterator<Integer> iterator = tree.iterator();
+        assertEquals(Integer.valueOf(1), iterator.next());
+        tree.delete(5000);
+        try {
+            iterator.next();
+            fail("Expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException expected) {
+        }
+    }
+
+    @Test
+    public void testNavigation_AVL() {
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int i = 10; i <= 100; i += 10) {
+            tree.insert(i);
+        }
+        assertEquals(Integer.valueOf(10), tree.first());
+        assertEquals(Integer.valueOf(100), tree.last());
+        assertEquals(Integer.valueOf(40), tree.floor(45));
+        assertEquals(Integer.valueOf(40), tree.floor(40));
+        assertEquals(Integer.valueOf(30), tree.lower(40));
+        assertEquals(Integer.valueOf(50), tree.ceiling(45));
+        assertEquals(Integer.valueOf(50), tree.higher(40));
+        assertNull(tree.lower(10));
+        assertNull(tree.higher(100));
+        java.util.List<Integer> keys = new java.util.ArrayList<>();
+        tree.range(20, false, 60, true).forEachRemaining(keys::add);
+        assertEquals(java.util.Arrays.asList(30, 40, 50, 60), keys);
+    }
+
+    @Test
+    public void testNavigation_RB() {
+        RedBlackTree<String> tree = new RedBlackTree<>();
+        assertNull(tree.first());
+        assertNull(tree.floor("M"));
+        for (String value : new String[] {"D", "B", "F", "A", "C", "E", "G"}) {
+            tree.insert(value);
+        }
+        assertEquals("A", tree.first());
+        assertEquals("G", tree.last());
+        assertEquals("C", tree.floor("Cc"));
+        assertEquals("D", tree.ceiling("Cc"));
+        java.util.List<String> keys = new java.util.ArrayList<>();
+        tree.range("B", true, "E", false).forEachRemaining(keys::add);
+        assertEquals(java.util.Arrays.asList("B", "C", "D"), keys);
+        assertFalse(tree.range("E", true, "B", true).hasNext());
+    }
+
+    @Test
+    public void testRankSelect_AVL() {
+        AVLTree<Integer> tree = new AVLTree<>();
+        for (int i = 0; i < 1000; i++) {
+            tree.insert(i * 2);
+        }
+        tree.delete(10);
+        assertEquals(5, tree.rank(11)); // 0, 2, 4, 6, 8
+        assertEquals(5, tree.rank(12));
+        assertEquals(Integer.valueOf(12), tree.select(5));
+        assertEquals(Integer.valueOf(1998), tree.select(998));
+        assertEquals(4, tree.countRange(8, 17)); // 8, 12, 14, 16 and not 10
+        assertEquals(0, tree.countRange(17, 8));
+    }
+
+    @Test
+    public void testRankSelect_RB() {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 999; i >= 0; i--) {
+            tree.insert(i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            tree.delete(i);
+        }
+        assertEquals(666, tree.getSize());
+        assertEquals(Integer.valueOf(1), tree.select(0));
+        assertEquals(Integer.valueOf(998), tree.select(665));
+        assertEquals(2, tree.rank(3));
+        assertEquals(4, tree.countRange(0, 6));
+        java.util.Spliterator<Integer> suffix = tree.spliterator();
+        java.util.Spliterator<Integer> prefix = suffix.trySplit();
+        assertEquals(666, prefix.getExactSizeIfKnown() + suffix.getExactSizeIfKnown());
+        try {
+            tree.select(666);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void testPutMergeRemove_AVLMap() {
+        AVLTreeMap<String, Integer> map = new AVLTreeMap<>();
+        assertNull(map.put("A", 1));
+        assertEquals(Integer.valueOf(1), map.put("A", 2)); // Updated in place
+        assertEquals(Integer.valueOf(5), map.merge("A", 3, Integer::sum));
+        assertEquals(Integer.valueOf(7), map.computeIfAbsent("B", key -> 7));
+        assertEquals(Integer.valueOf(7), map.computeIfAbsent("B", key -> 8));
+        assertNull(map.merge("A", 0, (old, value) -> null)); // Removes the entry
+        assertFalse(map.containsKey("A"));
+        assertEquals(1, map.getSize());
+        assertEquals(Integer.valueOf(7), map.remove("B"));
+        assertEquals(0, map.getSize());
+    }
+
+    @Test
+    public void testPutMergeRemove_RBMap() {
+        RedBlackTreeMap<Integer, String> map = new RedBlackTreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            assertNull(map.put(i, "v" + i));
+        }
+        assertEquals("v42", map.put(42, "x"));
+        assertEquals("x!", map.merge(42, "!", String::concat));
+        assertEquals("new", map.merge(1000, "new", String::concat));
+        assertNull(map.computeIfAbsent(2000, key -> null));
+        assertEquals(101, map.getSize());
+        assertEquals("v0", map.remove(0));
+        assertNull(map.get(0));
+        assertEquals(100, map.getSize());
+        assertTrue(map.getHeight() <= 2 * 7);
+    }
+
+    @Test
+    public void testReentrantMappingFunction_Maps() {
+        AVLTreeMap<Integer, Integer> avl = new AVLTreeMap<>();
+        RedBlackTreeMap<Integer, Integer> redBlack = new RedBlackTreeMap<>();
+        for (int i = 0; i < 100; i += 2) {
+            avl.put(i, i);
+            redBlack.put(i, i);
+        }
+        // Value-only writes keep the descent valid
+        assertEquals(Integer.valueOf(7), avl.computeIfAbsent(7, key -> avl.put(6, -6) + 1));
+        assertEquals(Integer.valueOf(7), redBlack.computeIfAbsent(7, key -> redBlack.put(6, -6) + 1));
+        assertEquals(Integer.valueOf(-6), avl.get(6));
+        assertEquals(Integer.valueOf(-6), redBlack.get(6));
+        try {
+            avl.computeIfAbsent(1, key -> avl.put(3, 3));
+            fail("Expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException expected) {
+        }
+        try {
+            redBlack.computeIfAbsent(1, key -> redBlack.put(3, 3));
+            fail("Expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException expected) {
+        }
+        try {
+            avl.merge(50, 1, (old, value) -> avl.remove(48));
+            fail("Expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException expected) {
+        }
+        try {
+            redBlack.merge(50, 1, (old, value) -> redBlack.remove(48));
+            fail("Expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException expected) {
+        }
+        // The function's own writes stand and the maps stay consistent
+        for (int i = 0; i < 100; i++) {
+            boolean present = i % 2 == 0 && i != 48 || i == 3 || i == 7;
+            assertEquals(present, avl.containsKey(i));
+            assertEquals(present, redBlack.containsKey(i));
+        }
+        assertEquals(51, avl.getSize());
+        assertEquals(51, redBlack.getSize());
+        assertEquals(Integer.valueOf(50), avl.get(50));
+        assertEquals(Integer.valueOf(50), redBlack.get(50));
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters_Concurrent() throws Exception {
+        for (int engine = 0; engine < 2; engine++) {
+            SelfBalanceTreeInterface<Integer> delegate = engine == 0 ? new AVLTree<>() : new RedBlackTree<>();
+            SelfBalanceTreeInterface<Integer> tree = new ConcurrentSelfBalanceTree<>(delegate);
+            for (int i = 0; i < 2000; i += 2) {
+                tree.insert(i); // Even keys stay for the whole test
+            }
+            java.util.concurrent.atomic.AtomicBoolean failed = new java.util.concurrent.atomic.AtomicBoolean();
+            Thread[] threads = new Thread[6];
+            for (int t = 0; t < threads.length; t++) {
+                boolean writer = t < 2;
+                int seed = t;
+                threads[t] = new Thread(() -> {
+                    java.util.Random random = new java.util.Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        int key = random.nextInt(2000);
+                        if (writer) {
+                            int odd = key | 1;
+                            if (random.nextBoolean()) {
+                                tree.insert(odd);
+                            } else {
+                                tree.delete(odd);
+                            }
+                        } else if (key % 2 == 0 && !tree.search(key)) {
+                            failed.set(true);
+                        } else if (key % 2 == 0 && !Integer.valueOf(key).equals(tree.floor(key))) {
+                            failed.set(true);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertFalse(failed.get());
+            int previous = -1;
+            for (int key : tree) {
+                assertTrue(key > previous);
+                previous = key;
+            }
+            assertTrue(tree.getSize() >= 1000);
+        }
+    }
+
+    // Readers search while a writer keeps rotating the nodes under them; an
+    // unbounded optimistic descent could loop on a half-done rotation forever
+    @Test(timeout = 120000)
+    public void testSearchDuringRotations_Concurrent() throws Exception {
+        for (int engine = 0; engine < 2; engine++) {
+            SelfBalanceTreeInterface<Integer> delegate = engine == 0 ? new AVLTree<>() : new RedBlackTree<>();
+            SelfBalanceTreeInterface<Integer> tree = new ConcurrentSelfBalanceTree<>(delegate);
+            for (int i = 0; i < 64; i++) {
+                tree.insert(i * 1000); // Always present
+            }
+            java.util.concurrent.atomic.AtomicBoolean done = new java.util.concurrent.atomic.AtomicBoolean();
+            java.util.concurrent.atomic.AtomicBoolean failed = new java.util.concurrent.atomic.AtomicBoolean();
+            Thread writer = new Thread(() -> {
+                // Ascending runs rotate at every level on the way in and out
+                for (int round = 0; round < 300; round++) {
+                    for (int i = 1; i < 1000; i += 3) {
+                        tree.insert(i + round % 64 * 1000);
+                    }
+                    for (int i = 1; i < 1000; i += 3) {
+                        tree.delete(i + round % 64 * 1000);
+                    }
+                }
+                done.set(true);
+            });
+            Thread[] readers = new Thread[3];
+            for (int t = 0; t < readers.length; t++) {
+                int seed = t;
+                readers[t] = new Thread(() -> {
+                    java.util.Random random = new java.util.Random(seed);
+                    while (!done.get()) {
+                        if (!tree.search(random.nextInt(64) * 1000)) {
+                            failed.set(true);
+                        }
+                    }
+                });
+                readers[t].start();
+            }
+            writer.start();
+            writer.join();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertFalse(failed.get());
+            assertEquals(64, tree.getSize());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsolation_PersistentAVL() {
+        PersistentAVLTree<Integer> tree = new PersistentAVLTree<>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(tree.insert(i));
+        }
+        PersistentAVLTree<Integer> snapshot = tree.snapshot();
+        java.util.Iterator<Integer> iterator = tree.iterator();
+        for (int i = 0; i < 100; i += 2) {
+            assertTrue(tree.delete(i));
+        }
+        assertEquals(2, tree.insertAll(java.util.Arrays.asList(200, 201, 1)).getApplied());
+        assertEquals(52, tree.getSize());
+        assertFalse(tree.search(0));
+        assertTrue(tree.search(201));
+
+        // The snapshot and the iterator still see the version they started from
+        assertEquals(100, snapshot.getSize());
+        assertTrue(snapshot.search(0));
+        assertFalse(snapshot.search(200));
+        assertEquals(Integer.valueOf(50), snapshot.select(50));
+        int expected = 0;
+        while (iterator.hasNext()) {
+            assertEquals(Integer.valueOf(expected++), iterator.next());
+        }
+        assertEquals(100, expected);
+
+        // Writes to the snapshot do not leak back either
+        assertTrue(snapshot.delete(99));
+        assertTrue(tree.search(99));
+        assertTrue(tree.getHeight() <= 7);
+    }
+
+    @Test
+    public void testConcurrentStress_LockFree() throws Exception {
+        LockFreeSearchTree<Integer> tree = new LockFreeSearchTree<>();
+        int threadCount = 4;
+        // Multiples of threadCount stay in the tree; thread t owns keys = t (mod threadCount)
+        java.util.List<Integer> stable = new java.util.ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            stable.add(i * threadCount);
+        }
+        java.util.Collections.shuffle(stable, new java.util.Random(1));
+        stable.forEach(tree::insert);
+        java.util.List<java.util.Set<Integer>> owned = new java.util.ArrayList<>();
+        java.util.concurrent.atomic.AtomicBoolean failed = new java.util.concurrent.atomic.AtomicBoolean();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            java.util.Set<Integer> mine = new java.util.HashSet<>();
+            owned.add(mine);
+            int id = t;
+            threads[t] = new Thread(() -> {
+                java.util.Random random = new java.util.Random(id);
+                for (int i = 0; i < 20000; i++) {
+                    int key = random.nextInt(1000) * threadCount + id;
+                    if (id == 0) {
+                        // Thread 0 only reads the stable keys
+                        if (!tree.search(key)) {
+                            failed.set(true);
+                        }
+                    } else if (random.nextBoolean()) {
+                        if (tree.insert(key) != mine.add(key)) {
+                            failed.set(true);
+                        }
+                    } else if (tree.delete(key) != mine.remove(key)) {
+                        failed.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+        java.util.TreeSet<Integer> expected = new java.util.TreeSet<>(stable);
+        owned.forEach(expected::addAll);
+        java.util.List<Integer> actual = new java.util.ArrayList<>();
+        tree.forEach(actual::add);
+        assertEquals(new java.util.ArrayList<>(expected), actual);
+        assertEquals(expected.size(), tree.getSize());
+        assertEquals(expected.first(), tree.first());
+        assertEquals(expected.last(), tree.last());
+    }
+
+    @Test
+    public void testDegenerateWalks_LockFree() {
+        LockFreeSearchTree<Integer> tree = new LockFreeSearchTree<>();
+        int count = 30000; // Ascending keys make a chain deeper than the call stack allows
+        for (int i = 0; i < count; i++) {
+            tree.insert(i);
+        }
+        assertEquals(count, tree.getHeight());
+        java.io.PrintStream out = System.out;
+        java.io.ByteArrayOutputStream printed = new java.io.ByteArrayOutputStream();
+        System.setOut(new java.io.PrintStream(printed));
+        try {
+            tree.traversePreOrder();
+            tree.traversePostOrder();
+        } finally {
+            System.setOut(out);
+        }
+        String[] lines = printed.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        String[] preOrder = lines[0].trim().split(" ");
+        String[] postOrder = lines[1].trim().split(" ");
+        // Each routing key is printed along with its leaf
+        assertEquals(2 * count - 1, preOrder.length);
+        assertEquals(2 * count - 1, postOrder.length);
+        assertEquals("0", postOrder[0]);
+        assertEquals("1", postOrder[1]);
+
+        LockFreeSearchTree<Integer> small = new LockFreeSearchTree<>();
+        for (int key : new int[] {2, 1, 3}) {
+            small.insert(key);
+        }
+        printed.reset();
+        System.setOut(new java.io.PrintStream(printed));
+        try {
+            small.traversePreOrder();
+            small.traversePostOrder();
+        } finally {
+            System.setOut(out);
+        }
+        lines = printed.toString().split(System.lineSeparator());
+        assertEquals("2 1 3 2 3", lines[0].trim());
+        assertEquals("1 2 3 3 2", lines[1].trim());
+        assertEquals(3, small.getHeight());
+    }
+
+    @Test
+    public void testShardedInsertAllAndRebalance_Sharded() {
+        ShardedTree<Integer> tree = new ShardedTree<>(4);
+        java.util.List<Integer> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(i);
+        }
+        assertEquals(1000, tree.insertAll(batch).getApplied());
+        assertTrue(tree.getShardCount() > 1);
+
+        // Everything new lands in the last shard until it is split up
+        batch.clear();
+        for (int i = 1000; i < 5000; i++) {
+            batch.add(i);
+        }
+        batch.add(0);
+        BatchResult result = tree.insertAll(batch);
+        assertEquals(4000, result.getApplied());
+        assertEquals(1, result.getSkipped());
+        int before = tree.getShardCount();
+        assertTrue(tree.rebalance());
+        assertTrue(tree.getShardCount() > before);
+
+        // Emptying most of the range leaves small shards to merge
+        batch.clear();
+        for (int i = 0; i < 4900; i++) {
+            batch.add(i);
+        }
+        assertEquals(4900, tree.deleteAll(batch).getApplied());
+        before = tree.getShardCount();
+        assertTrue(tree.rebalance());
+        assertTrue(tree.getShardCount() < before);
+
+        assertEquals(100, tree.getSize());
+        assertEquals(Integer.valueOf(4900), tree.first());
+        assertEquals(Integer.valueOf(4999), tree.last());
+        assertEquals(Integer.valueOf(4900), tree.ceiling(10));
+        assertEquals(100, tree.stream().parallel().distinct().count());
+        int expected = 4900;
+        for (int key : tree) {
+            assertEquals(expected++, key);
+        }
+    }
+
+    @Test
+    public void testSetOperations_AVL() {
+        AVLTree<Integer> evens = new AVLTree<>();
+        AVLTree<Integer> triples = new AVLTree<>();
+        for (int i = 0; i < 300; i++) {
+            evens.insert(2 * i);
+            triples.insert(3 * i);
+        }
+        AVLTree<Integer> upper = evens.split(300);
+        assertEquals(150, evens.getSize());
+        assertEquals(Integer.valueOf(298), evens.last());
+        assertEquals(Integer.valueOf(300), upper.first());
+        AVLTree<Integer> joined = AVLTree.join(evens, 299, upper);
+        assertEquals(301, joined.getSize());
+        assertEquals(0, evens.getSize());
+        assertEquals(Integer.valueOf(299), joined.select(150));
+
+        triples.union(joined, true);
+        assertEquals(301 + 300 - 100, triples.getSize()); // Multiples of 6 below 600 were in both
+        assertEquals(0, joined.getSize()); // Consumed by the operation
+        AVLTree<Integer> sixes = new AVLTree<>();
+        for (int i = 0; i < 200; i++) {
+            sixes.insert(6 * i);
+        }
+        triples.difference(sixes);
+        assertEquals(351, triples.getSize());
+        assertFalse(triples.search(6));
+        assertTrue(triples.search(299));
+        AVLTree<Integer> small = new AVLTree<>();
+        for (int i = 0; i < 10; i++) {
+            small.insert(i);
+        }
+        small.intersection(triples);
+        assertEquals(java.util.Arrays.asList(2, 3, 4, 8, 9), small.stream().collect(java.util.stream.Collectors.toList()));
+        assertTrue(small.getHeight() <= 3);
+    }
+
+    @Test
+    public void testSetOperations_RB() {
+        RedBlackTree<Integer> evens = new RedBlackTree<>();
+        RedBlackTree<Integer> triples = new RedBlackTree<>();
+        for (int i = 0; i < 300; i++) {
+            evens.insert(2 * i);
+            triples.insert(3 * i);
+        }
+        RedBlackTree<Integer> upper = evens.split(300);
+        assertEquals(150, evens.getSize());
+        assertEquals(Integer.valueOf(300), upper.first());
+        try {
+            RedBlackTree.join(upper, 299, evens);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected: upper's keys are not below 299
+        }
+        RedBlackTree<Integer> joined = RedBlackTree.join(evens, 299, upper);
+        assertEquals(301, joined.getSize());
+        assertEquals(Integer.valueOf(299), joined.select(150));
+
+        triples.union(joined, true);
+        assertEquals(501, triples.getSize());
+        assertEquals(0, joined.getSize());
+        RedBlackTree<Integer> odds = new RedBlackTree<>();
+        for (int i = 0; i < 300; i++) {
+            odds.insert(2 * i + 1);
+        }
+        triples.difference(odds);
+        assertEquals(400, triples.getSize()); // Loses 299 and the 100 odd multiples of 3 below 600
+        assertFalse(triples.search(3));
+        assertTrue(triples.search(897));
+        assertEquals(0, odds.getSize()); // Consumed by the operation
+        triples.intersection(odds);
+        assertEquals(0, triples.getSize());
+        assertNull(triples.first());
+    }
+
+    @Test
+    public void testSaveAndLoadSnapshot_AVL_RB() throws IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("tree", ".snapshot");
+        try {
+            AVLTree<String> source = new AVLTree<>();
+            for (int i = 0; i < 5000; i++) {
+                source.insert("key-" + i);
+            }
+            source.insert("\u00e9t\u00e9"); // Non-ASCII survives the UTF-8 codec
+            source.insert(new String(new char[(1 << 20) + 10]).replace('\0', 'x')); // Longer than the I/O buffer
+            source.save(file);
+            RedBlackTree<String> copy = new RedBlackTree<>();
+            copy.insert("replaced");
+            copy.load(file, KeyCodec.STRING);
+            assertEquals(source.getSize(), copy.getSize());
+            assertFalse(copy.search("replaced"));
+            assertTrue(copy.search("\u00e9t\u00e9"));
+            java.util.Iterator<String> expected = source.iterator();
+            for (String key : copy) {
+                assertEquals(expected.next(), key);
+            }
+
+            RedBlackTree<Long> longs = new RedBlackTree<>();
+            longs.insert(Long.MIN_VALUE);
+            longs.insert(42L);
+            longs.save(file);
+            AVLTree<Long> reloaded = new AVLTree<>();
+            reloaded.load(file, KeyCodec.LONG);
+            assertEquals(Long.valueOf(Long.MIN_VALUE), reloaded.first());
+            assertEquals(Long.valueOf(42L), reloaded.last());
+
+            AVLTree<Integer> integers = new AVLTree<>();
+            integers.insert(7);
+            try {
+                integers.load(file, KeyCodec.INTEGER); // Holds longs
+                fail("Loaded a snapshot of another key type");
+            } catch (IOException rejected) {
+            }
+            assertEquals(1, integers.getSize());
+
+            // A damaged key count or key length is rejected before allocating
+            java.nio.ByteBuffer bytes = java.nio.ByteBuffer.wrap(java.nio.file.Files.readAllBytes(file));
+            java.nio.file.Files.write(file, bytes.duplicate().putInt(6, Integer.MAX_VALUE).array());
+            try {
+                reloaded.load(file, KeyCodec.LONG);
+                fail("Loaded a snapshot with a corrupt key count");
+            } catch (IOException rejected) {
+            }
+            java.nio.file.Files.write(file, bytes.duplicate().putInt(6, 2).putInt(14, -1).array());
+            try {
+                reloaded.load(file, KeyCodec.LONG);
+                fail("Loaded a snapshot with a corrupt key length");
+            } catch (IOException rejected) {
+            }
+            // In range, but not the width of a long
+            java.nio.file.Files.write(file, bytes.duplicate().putInt(14, Integer.BYTES).array());
+            try {
+                reloaded.load(file, KeyCodec.LONG);
+                fail("Loaded a snapshot with a key length the codec cannot decode");
+            } catch (IOException rejected) {
+            }
+            assertEquals(2, reloaded.getSize());
+
+            new AVLTree<Integer>().save(file);
+            reloaded.load(file, KeyCodec.LONG); // Empty, so the key type does not matter
+            assertEquals(0, reloaded.getSize());
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReplayAfterRestart_Durable() throws Exception {
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("durable");
+        try {
+            DurableTree<Integer> tree = new DurableTree<>(new ConcurrentSelfBalanceTree<>(new AVLTree<Integer>()),
+                    directory, KeyCodec.INTEGER, 200, 4096);
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                int id = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        tree.insert(i * 4 + id);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            for (int i = 0; i < 1000; i += 3) {
+                assertTrue(tree.delete(i));
+            }
+            assertEquals(2, tree.deleteAll(java.util.Arrays.asList(1, 2, 3)).getApplied()); // 3 is gone already
+            tree.close();
+
+            // A crash can leave half a record at the end of the log
+            java.nio.file.Path log;
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                log = files.filter(file -> file.toString().endsWith(".wal")).max(java.util.Comparator.naturalOrder()).get();
+            }
+            java.nio.file.Files.write(log, new byte[] {0, 0, 0, 4, 1, 0}, java.nio.file.StandardOpenOption.APPEND);
+
+            DurableTree<Integer> reopened = new DurableTree<>(new RedBlackTree<>(), directory, KeyCodec.INTEGER);
+            assertEquals(664, reopened.getSize());
+            assertFalse(reopened.search(0));
+            assertFalse(reopened.search(1));
+            assertTrue(reopened.search(4));
+            assertTrue(reopened.insert(0));
+            reopened.close();
+            reopened = new DurableTree<>(new AVLTree<>(), directory, KeyCodec.INTEGER);
+            assertEquals(665, reopened.getSize());
+            reopened.close();
+        } finally {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                    java.nio.file.Files.delete(file);
+                }
+            }
+            java.nio.file.Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testFailedLogUndoesWrites_Durable() throws Exception {
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("durable");
+        try {
+            DurableTree<Integer> tree = new DurableTree<>(new AVLTree<>(), directory, KeyCodec.INTEGER);
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            tree.breakLog();
+            try {
+                tree.insert(500);
+                fail("Insert into a failed log");
+            } catch (java.io.UncheckedIOException expected) {
+            }
+            assertFalse(tree.search(500)); // Undone before the error surfaced
+            try {
+                tree.deleteAll(java.util.Arrays.asList(1, 2, 3));
+                fail("Delete from a failed log");
+            } catch (java.io.UncheckedIOException expected) {
+            }
+            assertTrue(tree.search(2));
+            assertEquals(100, tree.getSize());
+            try {
+                tree.close();
+                fail("Close hides the log failure");
+            } catch (IOException expected) {
+            }
+
+            tree = new DurableTree<>(new RedBlackTree<>(), directory, KeyCodec.INTEGER);
+            assertEquals(100, tree.getSize());
+            assertFalse(tree.search(500));
+            tree.close();
+            try {
+                tree.insert(600);
+                fail("Insert into a closed tree");
+            } catch (IllegalStateException expected) {
+            }
+            assertFalse(tree.search(600));
+            assertEquals(0, tree.insertAll(java.util.Arrays.asList(1, 2)).getApplied()); // Nothing to log
+        } finally {
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                    java.nio.file.Files.delete(file);
+                }
+            }
+            java.nio.file.Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testFailedSnapshotKeepsContents_Durable() throws Exception {
+        java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("durable");
+        java.nio.file.Path replacement = java.nio.file.Files.createTempFile("tree", ".snapshot");
+        try {
+            AVLTree<Integer> source = new AVLTree<>();
+            source.insert(1000);
+            TreeSnapshot.save(source, replacement, KeyCodec.INTEGER);
+            DurableTree<Integer> tree = new DurableTree<>(new AVLTree<>(), directory, KeyCodec.INTEGER);
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            // Directories in the way of the next two snapshots make writing them fail
+            java.nio.file.Files.createDirectory(directory.resolve("tree-1.snapshot.tmp"));
+            java.nio.file.Files.createDirectory(directory.resolve("tree-2.snapshot.tmp"));
+            try {
+                tree.bulkLoad(new Integer[] {1000, 1001});
+                fail("Bulk load without its snapshot");
+            } catch (java.io.UncheckedIOException expected) {
+            }
+            try {
+                tree.load(replacement, KeyCodec.INTEGER);
+                fail("Load without its snapshot");
+            } catch (IOException expected) {
+            }
+            assertEquals(100, tree.getSize());
+            assertFalse(tree.search(1000));
+            tree.insert(200); // Logged on top of the old snapshot
+            tree.close();
+            java.nio.file.Files.delete(directory.resolve("tree-1.snapshot.tmp"));
+            java.nio.file.Files.delete(directory.resolve("tree-2.snapshot.tmp"));
+
+            tree = new DurableTree<>(new RedBlackTree<>(), directory, KeyCodec.INTEGER);
+            assertEquals(101, tree.getSize());
+            assertTrue(tree.search(200));
+            assertFalse(tree.search(1000));
+            tree.load(replacement, KeyCodec.INTEGER);
+            assertEquals(1, tree.getSize());
+            tree.close();
+            tree = new DurableTree<>(new AVLTree<>(), directory, KeyCodec.INTEGER);
+            assertEquals(1, tree.getSize());
+            assertTrue(tree.search(1000));
+            tree.close();
+        } finally {
+            java.nio.file.Files.delete(replacement);
+            try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+                for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                    java.nio.file.Files.delete(file);
+                }
+            }
+            java.nio.file.Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testFreezeAndSearch_Frozen() throws IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("tree", ".frozen");
+        try {
+            java.util.TreeSet<Long> expected = new java.util.TreeSet<>();
+            RedBlackTree<Long> source = new RedBlackTree<>();
+            java.util.Random random = new java.util.Random(19);
+            for (int i = 0; i < 3000; i++) {
+                long key = random.nextInt(20000) - 10000L;
+                source.insert(key);
+                expected.add(key);
+            }
+            source.insert(Long.MIN_VALUE);
+            expected.add(Long.MIN_VALUE);
+            FrozenLongTree.freeze(source, file);
+            FrozenLongTree frozen = FrozenLongTree.open(file);
+            assertEquals(expected.size(), frozen.getSize());
+            assertEquals(source.getSize(), frozen.toArray().length);
+            assertEquals(expected.first(), frozen.first());
+            assertEquals(expected.last(), frozen.last());
+            for (long probe = -10005; probe <= 10005; probe++) {
+                assertEquals(expected.contains(probe), frozen.search(probe));
+                assertEquals(expected.ceiling(probe), frozen.ceiling(probe));
+                assertEquals(expected.floor(probe), frozen.floor(probe));
+                assertEquals(expected.higher(probe), frozen.higher(probe));
+                assertEquals(expected.lower(probe), frozen.lower(probe));
+            }
+
+            AVLTree<Integer> ints = new AVLTree<>();
+            ints.insert(7);
+            FrozenLongTree.freeze(ints, file);
+            assertTrue(FrozenLongTree.open(file).search(7));
+            FrozenLongTree.freeze(new long[0], file);
+            FrozenLongTree empty = FrozenLongTree.open(file);
+            assertEquals(0, empty.getHeight());
+            assertNull(empty.first());
+            assertFalse(empty.search(0));
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPagedStorageAndReopen_BPlus() throws IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("tree", ".bplus");
+        java.nio.file.Files.delete(file);
+        try {
+            java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+            // Small pages and a small cache so the test splits, merges and evicts
+            try (BPlusTree<Integer> tree = new BPlusTree<>(file, KeyCodec.INTEGER, 256, 256 * 16)) {
+                java.util.Random random = new java.util.Random(20);
+                for (int i = 0; i < 20000; i++) {
+                    int key = random.nextInt(5000);
+                    if (random.nextInt(3) == 0) {
+                        assertEquals(expected.remove(key), tree.delete(key));
+                    } else {
+                        assertEquals(expected.add(key), tree.insert(key));
+                    }
+                }
+                assertEquals(expected.size(), tree.getSize());
+                assertTrue(tree.getHeight() > 2);
+                assertEquals(expected.floor(2500), tree.floor(2500));
+                assertEquals(expected.higher(2500), tree.higher(2500));
+            }
+            try (BPlusTree<Integer> reopened = new BPlusTree<>(file, KeyCodec.INTEGER)) {
+                assertEquals(expected.size(), reopened.getSize());
+                java.util.List<Integer> scanned = new java.util.ArrayList<>();
+                reopened.range(1000, true, 2000, false).forEachRemaining(scanned::add);
+                assertEquals(new java.util.ArrayList<>(expected.subSet(1000, 2000)), scanned);
+
+                Integer[] sorted = new Integer[10000];
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = 2 * i;
+                }
+                reopened.bulkLoad(sorted);
+                assertEquals(10000, reopened.getSize());
+                assertTrue(reopened.search(19998));
+                assertFalse(reopened.search(19999));
+                java.util.Iterator<Integer> keys = reopened.iterator();
+                for (Integer key : sorted) {
+                    assertEquals(key, keys.next());
+                }
+                assertFalse(keys.hasNext());
+            }
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testInsertDeleteAndNavigate_BTree() {
+        java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+        BTree<Integer> tree = new BTree<>(4); // Small nodes so splits and merges reach the root
+        java.util.Random random = new java.util.Random(21);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.insert(key));
+            }
+        }
+        assertEquals(expected.size(), tree.getSize());
+        for (int key = -1; key <= 3000; key += 7) {
+            assertEquals(expected.contains(key), tree.search(key));
+            assertEquals(expected.floor(key), tree.floor(key));
+            assertEquals(expected.higher(key), tree.higher(key));
+        }
+        java.util.List<Integer> scanned = new java.util.ArrayList<>();
+        tree.range(1000, false, 2000, true).forEachRemaining(scanned::add);
+        assertEquals(new java.util.ArrayList<>(expected.subSet(1000, false, 2000, true)), scanned);
+
+        Integer[] sorted = new Integer[100000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        BTree<Integer> loaded = new BTree<>();
+        loaded.bulkLoad(sorted);
+        assertEquals(3, loaded.getHeight()); // 64^2 - 1 < 100000 <= 64^3 - 1
+        assertEquals(Integer.valueOf(0), loaded.first());
+        assertEquals(Integer.valueOf(99999), loaded.last());
+        assertEquals(100000, loaded.stream().count());
+        for (int i = 0; i < sorted.length; i += 2) {
+            assertTrue(loaded.delete(i));
+        }
+        assertEquals(50000, loaded.getSize());
+        assertFalse(loaded.search(0));
+        assertTrue(loaded.search(99999));
+    }
+
+    @Test
+    public void testCountersOff_Metrics() {
+        org.junit.Assume.assumeFalse(TreeMetrics.ENABLED);
+        AVLTree<Integer> avl = new AVLTree<>();
+        RedBlackTree<Integer> redBlack = new RedBlackTree<>();
+        for (int i = 1; i <= 1023; i++) {
+            avl.insert(i);
+            redBlack.insert(i);
+        }
+        assertTrue(avl.search(512));
+        assertTrue(redBlack.delete(512));
+        assertFalse(redBlack.search(512));
+        avl.resetMetrics();
+        redBlack.resetMetrics();
+        assertSame(TreeMetrics.Snapshot.EMPTY, avl.metrics());
+        assertSame(TreeMetrics.Snapshot.EMPTY, redBlack.metrics());
+        assertEquals(0, avl.metrics().getOperations(TreeMetrics.Operation.INSERT));
+        assertEquals(0, redBlack.metrics().getTotalRotations());
+    }
+
+    @Test
+    public void testHotPathCounters_Metrics() {
+        org.junit.Assume.assumeTrue(TreeMetrics.ENABLED);
+        AVLTree<Integer> avl = new AVLTree<>();
+        RedBlackTree<Integer> redBlack = new RedBlackTree<>();
+        for (int i = 1; i <= 1023; i++) {
+            avl.insert(i);
+            redBlack.insert(i);
+        }
+        TreeMetrics.Snapshot avlMetrics = avl.metrics();
+        TreeMetrics.Snapshot redBlackMetrics = redBlack.metrics();
+        assertEquals(1023, avlMetrics.getOperations(TreeMetrics.Operation.INSERT));
+        // Ascending keys only ever make the AVL tree right-heavy: one RR
+        // rotation per insert except at the 10 powers of two
+        assertEquals(1023 - 10, avlMetrics.getRotations(TreeMetrics.Rotation.RR));
+        assertEquals(0, avlMetrics.getRotations(TreeMetrics.Rotation.LL)
+                + avlMetrics.getRotations(TreeMetrics.Rotation.LR) + avlMetrics.getRotations(TreeMetrics.Rotation.RL));
+        assertTrue(redBlackMetrics.getRotations(TreeMetrics.Rotation.LEFT) > 0);
+        assertEquals(0, redBlackMetrics.getRotations(TreeMetrics.Rotation.RIGHT));
+        assertTrue(redBlackMetrics.getRecolourings(TreeMetrics.Operation.INSERT) > 0);
+
+        avl.resetMetrics();
+        redBlack.resetMetrics();
+        assertTrue(avl.search(512));
+        assertFalse(redBlack.search(2000));
+        assertTrue(redBlack.delete(1));
+        avlMetrics = avl.metrics();
+        redBlackMetrics = redBlack.metrics();
+        assertEquals(0, avlMetrics.getOperations(TreeMetrics.Operation.INSERT));
+        // 512 is the root of the perfectly balanced AVL tree
+        assertEquals(1, avlMetrics.getComparisons(TreeMetrics.Operation.SEARCH));
+        assertEquals(1, avlMetrics.getDepthHistogram(TreeMetrics.Operation.SEARCH)[1]);
+        long misses = redBlackMetrics.getComparisons(TreeMetrics.Operation.SEARCH);
+        assertTrue(misses >= 10 && misses <= 2 * 10);
+        assertEquals(1, redBlackMetrics.getDepthHistogram(TreeMetrics.Operation.SEARCH)[(int) misses]);
+        assertEquals(1, redBlackMetrics.getOperations(TreeMetrics.Operation.DELETE));
+        assertEquals(redBlackMetrics.getTotalRotations(),
+                redBlackMetrics.getRotations(TreeMetrics.Rotation.LEFT) + redBlackMetrics.getRotations(TreeMetrics.Rotation.RIGHT));
+        redBlackMetrics.commit("RedBlackTree"); // No recording running, so a no-op
+
+        // An optimistic search through the decorator counts once
+        avl.resetMetrics();
+        ConcurrentSelfBalanceTree<Integer> concurrent = new ConcurrentSelfBalanceTree<>(avl);
+        assertTrue(concurrent.search(512));
+        assertFalse(concurrent.search(0));
+        avlMetrics = avl.metrics();
+        assertEquals(2, avlMetrics.getOperations(TreeMetrics.Operation.SEARCH));
+        assertEquals(1, avlMetrics.getDepthHistogram(TreeMetrics.Operation.SEARCH)[1]);
+    }
+
+    @Test
+    public void testIncrementalHeightAndStats_RedBlack() {
+        java.util.TreeSet<Integer> expected = new java.util.TreeSet<>();
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        assertEquals(0, tree.stats().getHeight());
+        assertNull(tree.stats().getMin());
+        java.util.Random random = new java.util.Random(24);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.delete(key));
+            } else {
+                assertEquals(expected.add(key), tree.insert(key));
+            }
+            if (i % 97 == 0) {
+                TreeStats<Integer> stats = tree.stats();
+                assertEquals(tree.getHeight(tree.getRoot()), stats.getHeight()); // Full recount
+                assertEquals(expected.size(), stats.getSize());
+                assertEquals(expected.isEmpty() ? null : expected.first(), stats.getMin());
+                assertEquals(expected.isEmpty() ? null : expected.last(), stats.getMax());
+                assertTrue(stats.getHeight() <= 2 * stats.getBlackHeight());
+            }
+        }
+        assertSame(tree.stats(), tree.stats()); // Cached until the next change
+
+        RedBlackTree<Integer> other = new RedBlackTree<>();
+        for (int i = 1500; i < 4000; i += 3) {
+            other.insert(i);
+        }
+        tree.union(other);
+        RedBlackTree<Integer> upper = tree.split(3000);
+        assertEquals(tree.getHeight(tree.getRoot()), tree.getHeight());
+        assertEquals(upper.getHeight(upper.getRoot()), upper.getHeight());
+        assertEquals(Integer.valueOf(3000), upper.stats().getMin()); // The split key goes up
+
+        Integer[] sorted = new Integer[1023];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        tree.bulkLoad(sorted);
+        assertEquals(10, tree.stats().getHeight());
+        assertEquals(9, tree.stats().getBlackHeight()); // bulkLoad colours the deepest level red
+        assertEquals(Integer.valueOf(1022), tree.stats().getMax());
+    }
+
+    @Test
+    public void testChunkedParallelRead_FileIngestor() throws IOException {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("keys", ".txt");
+        try {
+            java.util.TreeSet<String> expected = new java.util.TreeSet<>();
+            StringBuilder text = new StringBuilder();
+            java.util.Random random = new java.util.Random(25);
+            int lines = 0;
+            for (int i = 0; i < 5000; i++) {
+                String key = (random.nextBoolean() ? "k\u00e9y-" : "key-") + random.nextInt(3000);
+                text.append(random.nextBoolean() ? "  " + key + "\t\r\n" : key + "\n");
+                expected.add(key);
+                lines++;
+                if (random.nextInt(50) == 0) {
+                    text.append("   \n"); // Blank lines are skipped
+                }
+            }
+            text.append("last-line-without-break");
+            expected.add("last-line-without-break");
+            lines++;
+            java.nio.file.Files.write(file, text.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+            // Chunks of a few lines each, so lines and
+            // multi-byte characters keep falling on chunk boundaries
+            java.util.List<Long> progress = new java.util.ArrayList<>();
+            FileIngestor.Result result = new FileIngestor(61, 3).read(file, (bytesRead, totalBytes) -> progress.add(bytesRead));
+            assertArrayEquals(expected.toArray(new String[0]), result.getKeys());
+            assertEquals(lines, result.getLines());
+            assertEquals(java.nio.file.Files.size(file), result.getBytes());
+            assertEquals(Long.valueOf(result.getBytes()), progress.get(progress.size() - 1));
+
+            RedBlackTree<String> tree = new RedBlackTree<>();
+            tree.bulkLoad(result.getKeys());
+            assertEquals(expected.size(), tree.getSize());
+            assertEquals(expected.first(), tree.first());
+
+            java.nio.file.Files.write(file, new byte[0]);
+            assertEquals(0, new FileIngestor().read(file).getKeys().length);
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+}